@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.benchmark
+
+import com.exactpro.th2.codec.fix.orchestra.QfjDictionaryLoader
+import com.exactpro.th2.codec.fix.orchestra.util.FixMessage
+import com.exactpro.th2.codec.fix.orchestra.util.loadMessageStructures
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.io.File
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures the model compilation performed on codec start.
+ * Every invocation indexes the repository in a new `StructureLoader` and interns the trees in a new `FixFieldPool`,
+ * so nothing is reused between invocations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+open class ModelBenchmark {
+    @Param("false", "true")
+    @JvmField
+    var inlineComponents: Boolean = false
+
+    @Setup
+    fun setup() {
+        SampleDictionary.repository
+    }
+
+    @Benchmark
+    fun loadMessageStructures(): Map<String, FixMessage> = SampleDictionary.repository.loadMessageStructures(inlineComponents)
+}
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+open class QfjDictionaryBenchmark {
+    private lateinit var directory: File
+
+    @Setup(Level.Invocation)
+    fun setup() {
+        directory = Files.createTempDirectory("qfj-dictionary").toFile()
+    }
+
+    @TearDown(Level.Invocation)
+    fun tearDown() {
+        directory.deleteRecursively()
+    }
+
+    @Benchmark
+    fun load(): File = SampleDictionary.open().use { QfjDictionaryLoader.load(it, directory) }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.benchmark
+
+import com.exactpro.th2.codec.api.DictionaryAlias
+import com.exactpro.th2.codec.api.IPipelineCodecContext
+import com.exactpro.th2.codec.fix.orchestra.QfjDictionaryLoader
+import com.exactpro.th2.codec.fix.orchestra.util.loadRepository
+import com.exactpro.th2.common.grpc.AnyMessage
+import com.exactpro.th2.common.grpc.MessageGroup
+import com.exactpro.th2.common.grpc.RawMessage
+import com.exactpro.th2.common.schema.dictionary.DictionaryType
+import com.google.protobuf.ByteString
+import io.fixprotocol._2020.orchestra.repository.Repository
+import quickfix.DataDictionary
+import java.io.ByteArrayInputStream
+import java.io.InputStream
+import java.nio.file.Files
+import kotlin.text.Charsets.UTF_8
+import quickfix.Message as QuickfixMessage
+
+private const val DICTIONARY = "dict/mit_2016.xml"
+private const val SOH = '\u0001'
+
+/**
+ * Dictionary used by all benchmarks. It is loaded once per benchmark JVM
+ */
+object SampleDictionary {
+    val bytes: ByteArray by lazy {
+        checkNotNull(SampleDictionary::class.java.classLoader.getResourceAsStream(DICTIONARY)) {
+            "cannot find dictionary: $DICTIONARY"
+        }.use(InputStream::readBytes)
+    }
+
+    val repository: Repository by lazy { open().use { it.loadRepository() } }
+
+    val dataDictionary: DataDictionary by lazy {
+        val directory = Files.createTempDirectory("qfj-dictionary").toFile()
+        Runtime.getRuntime().addShutdownHook(Thread { directory.deleteRecursively() })
+        open().use { QfjDictionaryLoader.load(it, directory) }.inputStream().use(::DataDictionary)
+    }
+
+    fun open(): InputStream = ByteArrayInputStream(bytes)
+}
+
+object SampleContext : IPipelineCodecContext {
+    override fun get(alias: DictionaryAlias): InputStream = throw UnsupportedOperationException("aliases are not supported")
+
+    override fun get(type: DictionaryType): InputStream = SampleDictionary.open()
+
+    override fun getDictionaryAliases(): Set<String> = emptySet()
+}
+
+enum class SampleMessage(val messageName: String, val raw: String) {
+    NEW_ORDER_SINGLE(
+        "NewOrderSingle",
+        fixMessage(
+            35 to "D", 34 to 91, 49 to "DEMO-CONN2", 52 to "20220214-12:23:36.700", 56 to "FGW",
+            11 to 3016560, 453 to 1, 448 to "DEMO-CONN2", 447 to "D", 452 to 76,
+            48 to "INSTR2", 22 to 8, 54 to 2, 60 to "20220214-12:23:36.698", 38 to 100, 40 to 2, 44 to 34, 59 to 0
+        )
+    ),
+    EXECUTION_REPORT(
+        "ExecutionReport",
+        fixMessage(
+            35 to 8, 34 to 92, 49 to "FGW", 52 to "20220214-12:23:36.900", 56 to "DEMO-CONN2",
+            11 to 3016560, 14 to 40, 17 to 156, 22 to 8, 37 to 54, 38 to 100, 39 to "C", 40 to 2, 44 to 34, 48 to "INSTR2",
+            54 to 2, 58 to "The remaining part of simulated order has been expired", 59 to 3, 60 to "20220214-12:23:36.798",
+            150 to "C", 151 to 0, 528 to "A", 581 to 1,
+            453 to 3, 448 to "DEMO-CONN2", 447 to "D", 452 to 76, 448 to 0, 447 to "N", 452 to 3, 448 to 3, 447 to "N", 452 to 12
+        )
+    ),
+    MARKET_DATA_SNAPSHOT_SMALL("MarketDataSnapshotFullRefresh", marketDataSnapshot(10)),
+    MARKET_DATA_SNAPSHOT_LARGE("MarketDataSnapshotFullRefresh", marketDataSnapshot(1000));
+
+    fun toQuickfixMessage(): QuickfixMessage = QuickfixMessage().apply {
+        fromString(raw, SampleDictionary.dataDictionary, true)
+    }
+
+    fun toMessageGroup(): MessageGroup = MessageGroup.newBuilder()
+        .addMessages(AnyMessage.newBuilder().setRawMessage(RawMessage.newBuilder().setBody(ByteString.copyFrom(raw, UTF_8))))
+        .build()
+}
+
+private fun marketDataSnapshot(entries: Int): String = fixMessage(
+    35 to "W", 34 to 93, 49 to "FGW", 52 to "20220214-12:23:37.100", 56 to "DEMO-CONN2",
+    48 to "INSTR2", 22 to 8,
+    268 to entries,
+    *Array(entries) { index ->
+        listOf(269 to index % 2, 270 to 34 + index % 100, 271 to 100 * (index + 1))
+    }.flatMap { it }.toTypedArray()
+)
+
+/**
+ * Builds a FIXT.1.1 message from the body fields with the correct BodyLength and CheckSum
+ */
+fun fixMessage(vararg fields: Pair<Int, Any>): String {
+    val body = fields.joinToString("") { (tag, value) -> "$tag=$value$SOH" }
+    val message = "8=FIXT.1.1${SOH}9=${body.length}$SOH$body"
+    return "${message}10=${"%03d".format(message.sumOf { it.code } % 256)}$SOH"
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.benchmark
+
+import com.exactpro.th2.codec.api.IPipelineCodec
+import com.exactpro.th2.codec.api.impl.ReportingContext
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodecFactory
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodecSettings
+import com.exactpro.th2.common.grpc.MessageGroup
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compares a codec shared by all benchmark threads with a codec per thread.
+ * The number of threads is set by the runner (see [ScalabilityRunner])
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class ScalabilityBenchmark {
+    @Benchmark
+    fun decodeShared(state: SharedCodec): MessageGroup = state.decode()
+
+    @Benchmark
+    fun decodePerThread(state: ThreadCodec): MessageGroup = state.decode()
+
+    @Benchmark
+    fun encodeShared(state: SharedCodec): MessageGroup = state.encode()
+
+    @Benchmark
+    fun encodePerThread(state: ThreadCodec): MessageGroup = state.encode()
+
+    @State(Scope.Benchmark)
+    open class SharedCodec : CodecState()
+
+    @State(Scope.Thread)
+    open class ThreadCodec : CodecState()
+
+    abstract class CodecState {
+        @Param
+        @JvmField
+        var sample: SampleMessage = SampleMessage.NEW_ORDER_SINGLE
+
+        private lateinit var factory: FixOrchestraCodecFactory
+        private lateinit var codec: IPipelineCodec
+        private lateinit var raw: MessageGroup
+        private lateinit var parsed: MessageGroup
+
+        @Setup
+        fun setup() {
+            factory = FixOrchestraCodecFactory().apply { init(SampleContext) }
+            codec = factory.create(FixOrchestraCodecSettings())
+            raw = sample.toMessageGroup()
+            parsed = codec.decode(raw, ReportingContext())
+        }
+
+        @TearDown
+        fun tearDown() {
+            codec.close()
+            factory.close()
+        }
+
+        fun decode(): MessageGroup = codec.decode(raw, ReportingContext())
+
+        fun encode(): MessageGroup = codec.encode(parsed, ReportingContext())
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:JvmName("ScalabilityRunner")
+
+package com.exactpro.th2.codec.fix.orchestra.benchmark
+
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordedFrame
+import jdk.jfr.consumer.RecordingFile
+import org.openjdk.jmh.runner.Runner
+import org.openjdk.jmh.runner.options.OptionsBuilder
+import org.openjdk.jmh.runner.options.TimeValue
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.time.Duration
+
+private val BENCHMARKS = listOf("decodeShared", "decodePerThread", "encodeShared", "encodePerThread")
+private const val MONITOR_ENTER = "jdk.JavaMonitorEnter"
+private const val THREAD_PARK = "jdk.ThreadPark"
+private const val TOP_SITES = 5
+
+/**
+ * Records only contention events. Zero thresholds make every contended monitor enter and park visible
+ */
+private val JFR_SETTINGS = """
+    <?xml version="1.0" encoding="UTF-8"?>
+    <configuration version="2.0" label="Contention">
+      <event name="$MONITOR_ENTER">
+        <setting name="enabled">true</setting>
+        <setting name="stackTrace">true</setting>
+        <setting name="threshold">0 ms</setting>
+      </event>
+      <event name="$THREAD_PARK">
+        <setting name="enabled">true</setting>
+        <setting name="stackTrace">true</setting>
+        <setting name="threshold">0 ms</setting>
+      </event>
+    </configuration>
+""".trimIndent()
+
+/**
+ * Only events with these packages in the stack trace are reported, the rest are JMH infrastructure
+ */
+private val REPORTED_PACKAGES = listOf("com.exactpro.", "quickfix.", "io.fixprotocol.", "org.apache.commons.collections4.")
+
+private class Contention(val events: Long, val blocked: Duration, val sites: List<Pair<String, Duration>>)
+
+private class Measurement(val threads: Int, val score: Double, val error: Double, val contention: Contention)
+
+/**
+ * Runs [ScalabilityBenchmark] for 1, 2, 4 ... `maxThreads` threads and reports throughput scaling with contention recorded by JFR.
+ *
+ * Arguments: `[maxThreads] [outputDirectory] [sample]`
+ */
+fun main(args: Array<String>) {
+    val maxThreads = args.getOrNull(0)?.toInt() ?: Runtime.getRuntime().availableProcessors()
+    val outputDirectory = Paths.get(args.getOrNull(1) ?: "build/reports/jmh/scalability")
+    val sample = args.getOrNull(2) ?: SampleMessage.NEW_ORDER_SINGLE.name
+
+    require(maxThreads > 0) { "maxThreads must be positive: $maxThreads" }
+
+    Files.createDirectories(outputDirectory)
+    val settings = Files.writeString(outputDirectory.resolve("contention.jfc"), JFR_SETTINGS)
+    val threadCounts = (generateSequence(1) { it * 2 }.takeWhile { it < maxThreads } + maxThreads).toList()
+    val report = StringBuilder()
+
+    for (benchmark in BENCHMARKS) {
+        val measurements = threadCounts.map { threads ->
+            val recording = outputDirectory.resolve("$benchmark-$threads.jfr")
+
+            val options = OptionsBuilder()
+                .include("${ScalabilityBenchmark::class.java.name}.$benchmark$")
+                .param("sample", sample)
+                .threads(threads)
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .jvmArgsAppend("-XX:StartFlightRecording=settings=$settings,filename=$recording,dumponexit=true")
+                .shouldFailOnError(true)
+                .build()
+
+            val result = Runner(options).run().single().primaryResult
+
+            Measurement(threads, result.score, result.scoreError, readContention(recording))
+        }
+
+        report.appendReport(benchmark, measurements)
+    }
+
+    print(report)
+    Files.writeString(outputDirectory.resolve("scalability.txt"), report)
+}
+
+private fun StringBuilder.appendReport(benchmark: String, measurements: List<Measurement>) {
+    val base = measurements.first().score
+
+    appendLine("$benchmark (ops/ms)")
+    appendLine("%8s %14s %10s %8s %10s %12s %14s".format("threads", "score", "error", "speedup", "efficiency", "contentions", "blocked (ms)"))
+
+    measurements.forEach { measurement ->
+        val speedup = measurement.score / base
+        appendLine(
+            "%8d %14.3f %10.3f %8.2f %9.0f%% %12d %14.3f".format(
+                measurement.threads,
+                measurement.score,
+                measurement.error,
+                speedup,
+                speedup / measurement.threads * 100,
+                measurement.contention.events,
+                measurement.contention.blocked.toNanos() / 1_000_000.0,
+            )
+        )
+    }
+
+    measurements.filter { it.contention.sites.isNotEmpty() }.forEach { measurement ->
+        appendLine("  top contended sites at ${measurement.threads} thread(s):")
+        measurement.contention.sites.forEach { (site, blocked) ->
+            appendLine("    %12.3f ms  %s".format(blocked.toNanos() / 1_000_000.0, site))
+        }
+    }
+
+    appendLine()
+}
+
+private fun readContention(recording: Path): Contention {
+    if (!Files.exists(recording)) {
+        return Contention(0, Duration.ZERO, emptyList())
+    }
+
+    val events = RecordingFile.readAllEvents(recording).filter { it.eventType.name == MONITOR_ENTER || it.eventType.name == THREAD_PARK }
+        .filter { event -> event.stackTrace?.frames?.any { it.isReported } == true }
+
+    val sites = events.groupBy(RecordedEvent::site)
+        .mapValues { (_, siteEvents) -> siteEvents.fold(Duration.ZERO) { total, event -> total + event.duration } }
+        .entries
+        .sortedByDescending { it.value }
+        .take(TOP_SITES)
+        .map { it.key to it.value }
+
+    return Contention(events.size.toLong(), events.fold(Duration.ZERO) { total, event -> total + event.duration }, sites)
+}
+
+private val RecordedFrame.isReported: Boolean
+    get() = method.type.name.let { type -> REPORTED_PACKAGES.any(type::startsWith) }
+
+private val RecordedEvent.site: String
+    get() {
+        val lock = when (eventType.name) {
+            MONITOR_ENTER -> getClass("monitorClass")?.name
+            else -> getClass("parkedClass")?.name
+        }
+        val frame = stackTrace.frames.first { it.isReported }
+        return "${eventType.name} ${lock ?: "<unknown>"} at ${frame.method.type.name}.${frame.method.name}:${frame.lineNumber}"
+    }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.benchmark
+
+import com.exactpro.th2.codec.fix.orchestra.util.EncodeResult
+import com.exactpro.th2.codec.fix.orchestra.util.FixMessage
+import com.exactpro.th2.codec.fix.orchestra.util.DecodeResult
+import com.exactpro.th2.codec.fix.orchestra.util.beginString
+import com.exactpro.th2.codec.fix.orchestra.util.decode
+import com.exactpro.th2.codec.fix.orchestra.util.encode
+import com.exactpro.th2.codec.fix.orchestra.util.loadMessageStructures
+import com.exactpro.th2.common.grpc.Message
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+import quickfix.Message as QuickfixMessage
+
+/**
+ * Measures conversion between QFJ and th2 messages without validation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class StructureBenchmark {
+    @Param
+    @JvmField
+    var sample: SampleMessage = SampleMessage.NEW_ORDER_SINGLE
+
+    @Param("false", "true")
+    @JvmField
+    var inlineComponents: Boolean = false
+
+    private lateinit var structure: FixMessage
+    private lateinit var beginString: String
+    private lateinit var quickfixMessage: QuickfixMessage
+    private lateinit var message: Message
+
+    @Setup
+    fun setup() {
+        val repository = SampleDictionary.repository
+        structure = repository.loadMessageStructures(inlineComponents).getValue(sample.messageName)
+        beginString = repository.beginString
+        quickfixMessage = sample.toQuickfixMessage()
+        message = structure.decode(quickfixMessage).message.build()
+    }
+
+    @Benchmark
+    fun decode(): DecodeResult = structure.decode(quickfixMessage)
+
+    @Benchmark
+    fun encode(): EncodeResult = structure.encode(message, beginString)
+}
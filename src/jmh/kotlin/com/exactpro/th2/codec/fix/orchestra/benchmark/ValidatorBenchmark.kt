@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.benchmark
+
+import com.exactpro.th2.codec.fix.orchestra.validator.RepositoryCache
+import com.exactpro.th2.codec.fix.orchestra.validator.ValidatorQfj
+import io.fixprotocol._2020.orchestra.repository.MessageType
+import io.fixprotocol.orchestra.model.SymbolResolver
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+import quickfix.Message as QuickfixMessage
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class ValidatorBenchmark {
+    @Param
+    @JvmField
+    var sample: SampleMessage = SampleMessage.NEW_ORDER_SINGLE
+
+    @Param("500")
+    @JvmField
+    var cacheSize: Int = 0
+
+    private lateinit var validator: ValidatorQfj
+    private lateinit var messageType: MessageType
+    private lateinit var message: QuickfixMessage
+
+    @Setup
+    fun setup() {
+        val cache = RepositoryCache(SampleDictionary.repository, cacheSize)
+        validator = ValidatorQfj(cache, SymbolResolver())
+        messageType = checkNotNull(cache.getMessage(sample.messageName, "base")) { "No message: ${sample.messageName}" }
+        message = sample.toQuickfixMessage()
+    }
+
+    @Benchmark
+    fun validate() = validator.validate(message, messageType)
+}
@@ -15,12 +15,12 @@
 package com.exactpro.th2.codec.fix.orchestra.scope;
 
 import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.CodeType;
 import io.fixprotocol._2020.orchestra.repository.FieldRefType;
 import io.fixprotocol._2020.orchestra.repository.GroupRefType;
 import io.fixprotocol._2020.orchestra.repository.GroupType;
 import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
 import io.fixprotocol.orchestra.dsl.antlr.ScoreException;
-import io.fixprotocol.orchestra.message.CodeSetScope;
 import io.fixprotocol.orchestra.model.FixNode;
 import io.fixprotocol.orchestra.model.FixType;
 import io.fixprotocol.orchestra.model.FixValue;
@@ -41,16 +41,23 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 abstract class AbstractMessageScope {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractMessageScope.class);
 
     private final Evaluator evaluator;
-    private final FieldMap fieldMap;
+    private FieldMap fieldMap;
     private final RepositoryAccessor repository;
     private final SymbolResolver symbolResolver;
+    /**
+     * Entries of groups by values of their key fields. An index is built on the first predicate over the field
+     * and reused until the scope is closed or bound to another field map
+     */
+    private final Map<String, Map<String, Group>> predicateIndexes = new HashMap<>();
 
     protected AbstractMessageScope(FieldMap fieldMap, RepositoryAccessor repository,
                                    SymbolResolver symbolResolver, Evaluator evaluator) {
@@ -60,6 +67,14 @@ abstract class AbstractMessageScope {
         this.evaluator = evaluator;
     }
 
+    /**
+     * Exposes another field map of the same structure, so the scope can be reused for a batch of messages
+     */
+    protected void rebind(FieldMap fieldMap) {
+        this.fieldMap = fieldMap;
+        predicateIndexes.clear();
+    }
+
     protected void assignField(FieldRefType fieldRefType, FixValue<?> fixValue) {
         final int id = fieldRefType.getId().intValue();
         final String scenario = fieldRefType.getScenario();
@@ -141,7 +156,7 @@ abstract class AbstractMessageScope {
         final CodeSetType codeSet = repository.getCodeset(dataTypeString, scenario);
         if (codeSet != null) {
             dataTypeString = codeSet.getType();
-            symbolResolver.nest(new PathStep("^"), new CodeSetScope(codeSet));
+            symbolResolver.nest(CodeSetSymbols.CODE_SET_STEP, CodeSetSymbols.of(codeSet));
         }
 
         final FixType dataType = FixType.forName(dataTypeString);
@@ -243,6 +258,22 @@ abstract class AbstractMessageScope {
             }
             return new GroupInstanceScope(group, groupType, repository, symbolResolver, evaluator);
         } else if (predicate != null) {
+            final EqualityPredicate equality = EqualityPredicate.parse(predicate);
+            final FieldRefType keyField = equality == null ? null : findKeyField(groupType, equality.getFieldName());
+            final String key = keyField == null ? null : resolveLiteral(keyField, equality);
+            if (key != null) {
+                final int groupTag = groupType.getNumInGroup().getId().intValue();
+                final boolean numeric = isNumeric(getValueType(keyField));
+                final Group group = getPredicateIndex(groupTag, keyField.getId().intValue(), numeric).get(key);
+                if (group == null) {
+                    return null;
+                }
+                final GroupInstanceScope scope =
+                        new GroupInstanceScope(group, groupType, repository, symbolResolver, evaluator);
+                final Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT);
+                local.nest(new PathStep(groupType.getName()), scope);
+                return scope;
+            }
             final List<Group> groups = fieldMap.getGroups(groupType.getNumInGroup().getId().intValue());
             for (final Group group : groups) {
                 final GroupInstanceScope scope =
@@ -265,5 +296,113 @@ abstract class AbstractMessageScope {
         }
     }
 
+    /**
+     * Returns the field of the group entry compared by the predicate, {@code null} if the predicate cannot be resolved by an index:
+     * the field is not a direct member of the group or it has a default value used for absent fields
+     */
+    private FieldRefType findKeyField(GroupType groupType, String fieldName) {
+        for (final Object member : groupType.getComponentRefOrGroupRefOrFieldRef()) {
+            if (member instanceof FieldRefType) {
+                final FieldRefType fieldRefType = (FieldRefType) member;
+                if (fieldName.equals(repository.getFieldName(fieldRefType.getId().intValue(), fieldRefType.getScenario()))) {
+                    return fieldRefType.getValue() == null ? fieldRefType : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the wire value the key field is compared with, {@code null} if the code is unknown.
+     * Values of numeric fields are normalized the same way as the keys of the index
+     */
+    private String resolveLiteral(FieldRefType keyField, EqualityPredicate equality) {
+        final String scenario = keyField.getScenario();
+        final String dataTypeString = repository.getFieldDatatype(keyField.getId().intValue(), scenario);
+        final CodeSetType codeSet = repository.getCodeset(dataTypeString, scenario);
+        switch (equality.getKind()) {
+            case NUMBER:
+                // the evaluator compares values of the field type, so a number matches numeric fields only
+                return isNumeric(codeSet != null ? codeSet.getType() : dataTypeString) ? equality.getLiteral() : null;
+            case STRING:
+                return isString(codeSet != null ? codeSet.getType() : dataTypeString) ? equality.getLiteral() : null;
+        }
+        if (codeSet != null) {
+            for (final CodeType code : codeSet.getCode()) {
+                if (code.getName().equals(equality.getLiteral())) {
+                    return isNumeric(codeSet.getType()) ? EqualityPredicate.normalize(code.getValue()) : code.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the datatype of the values of the field: the type of its code set if it has one, its datatype otherwise
+     */
+    private String getValueType(FieldRefType fieldRefType) {
+        final String scenario = fieldRefType.getScenario();
+        final String dataTypeString = repository.getFieldDatatype(fieldRefType.getId().intValue(), scenario);
+        final CodeSetType codeSet = repository.getCodeset(dataTypeString, scenario);
+        return codeSet != null ? codeSet.getType() : dataTypeString;
+    }
+
+    private static boolean isString(String dataTypeString) {
+        switch (FixType.forName(dataTypeString)) {
+            case StringType:
+            case MultipleCharValue:
+            case MultipleStringValue:
+            case Country:
+            case Currency:
+            case Exchange:
+            case MonthYear:
+            case Language:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isNumeric(String dataTypeString) {
+        switch (FixType.forName(dataTypeString)) {
+            case intType:
+            case Length:
+            case TagNum:
+            case SeqNum:
+            case NumInGroup:
+            case DayOfMonth:
+            case Amt:
+            case floatType:
+            case Qty:
+            case Price:
+            case PriceOffset:
+            case Percentage:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the first entries of the group by the values of the key field, numeric values are normalized
+     */
+    private Map<String, Group> getPredicateIndex(int groupTag, int fieldTag, boolean numeric) {
+        return predicateIndexes.computeIfAbsent(groupTag + "." + fieldTag + (numeric ? "#" : ""), key -> {
+            final Map<String, Group> index = new HashMap<>();
+            for (final Group group : fieldMap.getGroups(groupTag)) {
+                try {
+                    final String value = group.getString(fieldTag);
+                    final String indexed = numeric ? EqualityPredicate.normalize(value) : value;
+                    if (indexed != null) {
+                        index.putIfAbsent(indexed, group);
+                    }
+                } catch (final FieldNotFound e) {
+                    // entries without the key field never match
+                }
+            }
+            return index;
+        });
+    }
+
 
 }
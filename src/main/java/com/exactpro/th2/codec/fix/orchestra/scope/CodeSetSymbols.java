@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exactpro.th2.codec.fix.orchestra.scope;
+
+import io.fixprotocol._2020.orchestra.repository.CodeSetType;
+import io.fixprotocol._2020.orchestra.repository.CodeType;
+import io.fixprotocol.orchestra.model.FixNode;
+import io.fixprotocol.orchestra.model.FixType;
+import io.fixprotocol.orchestra.model.FixValue;
+import io.fixprotocol.orchestra.model.FixValueFactory;
+import io.fixprotocol.orchestra.model.ModelException;
+import io.fixprotocol.orchestra.model.PathStep;
+import io.fixprotocol.orchestra.model.Scope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable symbol table of a code set resolving {@code ^Code} references. Unlike {@link io.fixprotocol.orchestra.message.CodeSetScope}
+ * the values of codes are built once and the table is shared by all validators of the repository the code set belongs to
+ */
+public final class CodeSetSymbols implements Scope {
+
+    /**
+     * The step code set scopes are nested at
+     */
+    public static final PathStep CODE_SET_STEP = new PathStep("^");
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CodeSetSymbols.class);
+    // weak keys let tables go away together with the repository
+    private static final Map<CodeSetType, CodeSetSymbols> TABLES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final String name;
+    private final Map<String, FixValue<?>> codes;
+
+    @SuppressWarnings("unchecked")
+    private CodeSetSymbols(CodeSetType codeSet) {
+        name = codeSet.getName();
+        final FixType type = FixType.forName(codeSet.getType());
+        final Class<?> valueClass = type.getValueClass();
+        final Map<String, FixValue<?>> codes = new HashMap<>();
+        for (final CodeType code : codeSet.getCode()) {
+            try {
+                final FixValue<Object> value = FixValueFactory.create(code.getName(), type, (Class<Object>) valueClass);
+                value.setValue(valueClass.cast(type.fromString(code.getValue())));
+                codes.put(code.getName(), value);
+            } catch (final ModelException | RuntimeException e) {
+                LOGGER.warn("Skipped code {} of code set {}", code.getName(), name, e);
+            }
+        }
+        this.codes = Collections.unmodifiableMap(codes);
+    }
+
+    public static CodeSetSymbols of(CodeSetType codeSet) {
+        return TABLES.computeIfAbsent(codeSet, CodeSetSymbols::new);
+    }
+
+    /**
+     * Returns the value of the code, {@code null} if the code set has no such code
+     */
+    public FixValue<?> getCode(String codeName) {
+        return codes.get(codeName);
+    }
+
+    @Override
+    public FixValue<?> assign(PathStep pathStep, FixValue<?> value) {
+        throw new UnsupportedOperationException("Code set is immutable");
+    }
+
+    @Override
+    public Scope nest(PathStep pathStep, Scope nested) {
+        throw new UnsupportedOperationException("Code set is immutable");
+    }
+
+    @Override
+    public FixNode remove(PathStep pathStep) {
+        throw new UnsupportedOperationException("Code set is immutable");
+    }
+
+    @Override
+    public FixNode resolve(PathStep pathStep) {
+        return codes.get(pathStep.getName());
+    }
+
+    @Override
+    public void setParent(Scope parent) {
+        // the table is shared, so it is not bound to a parent
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exactpro.th2.codec.fix.orchestra.scope;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Predicate of a group path step comparing a field of an entry with a literal, e.g. {@code PartyRole==3},
+ * {@code PartyRole==^ClearingFirm} or {@code PartyID=="FIRM"}. Such predicates are resolved with indexes of the entries
+ * instead of evaluation against every entry
+ */
+final class EqualityPredicate {
+    private static final Pattern PATTERN = Pattern.compile(
+            "\\s*([A-Za-z][A-Za-z0-9]*)\\s*==\\s*(-?\\d+(?:\\.\\d+)?|\"[^\"]*\"|\\^[A-Za-z][A-Za-z0-9]*)\\s*");
+    private static final Map<String, Optional<EqualityPredicate>> CACHE = new ConcurrentHashMap<>();
+
+    enum Kind { NUMBER, STRING, CODE }
+
+    private final String fieldName;
+    private final Kind kind;
+    private final String literal;
+
+    private EqualityPredicate(String fieldName, Kind kind, String literal) {
+        this.fieldName = fieldName;
+        this.kind = kind;
+        this.literal = literal;
+    }
+
+    /**
+     * Returns the parsed predicate or {@code null} if the expression is not a single equality of a field and a literal
+     */
+    static EqualityPredicate parse(String expression) {
+        return CACHE.computeIfAbsent(expression, EqualityPredicate::doParse).orElse(null);
+    }
+
+    private static Optional<EqualityPredicate> doParse(String expression) {
+        final Matcher matcher = PATTERN.matcher(expression);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        final String literal = matcher.group(2);
+        switch (literal.charAt(0)) {
+            case '"':
+                return Optional.of(new EqualityPredicate(matcher.group(1), Kind.STRING, literal.substring(1, literal.length() - 1)));
+            case '^':
+                return Optional.of(new EqualityPredicate(matcher.group(1), Kind.CODE, literal.substring(1)));
+            default:
+                return Optional.of(new EqualityPredicate(matcher.group(1), Kind.NUMBER, normalize(literal)));
+        }
+    }
+
+    /**
+     * Returns the canonical form of a number so values equal by the DSL semantics are equal strings, {@code null} if it is not a number
+     */
+    static String normalize(String number) {
+        try {
+            return new BigDecimal(number).stripTrailingZeros().toPlainString();
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    String getFieldName() {
+        return fieldName;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The literal without quotes, the normalized number or the name of the code
+     */
+    String getLiteral() {
+        return literal;
+    }
+}
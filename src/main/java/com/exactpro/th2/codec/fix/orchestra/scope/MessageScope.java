@@ -52,6 +52,15 @@ public class MessageScope extends AbstractMessageScope implements Scope {
     }
 
 
+    /**
+     * Exposes another message of the same type without nesting the scope again
+     *
+     * @param message FIX message to expose
+     */
+    public void bind(Message message) {
+        rebind(message);
+    }
+
     /*
      * (non-Javadoc)
      *
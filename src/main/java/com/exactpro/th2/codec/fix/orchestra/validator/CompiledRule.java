@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exactpro.th2.codec.fix.orchestra.validator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The {@code when} expression of a field rule compiled once per expression. Presence tests of a message field
+ * ({@code exists Field} or {@code !exists Field}) and comparisons of a field with a code ({@code Field == ^Code} or
+ * {@code Field != ^Code}) are evaluated directly with the message, other expressions require the DSL evaluator
+ */
+final class CompiledRule {
+    private static final Pattern PRESENCE_TEST = Pattern.compile("\\s*(!?)\\s*exists\\s+([A-Za-z][A-Za-z0-9]*)\\s*");
+    private static final Pattern CODE_TEST = Pattern.compile("\\s*([A-Za-z][A-Za-z0-9]*)\\s*([=!])=\\s*\\^([A-Za-z][A-Za-z0-9]*)\\s*");
+    private static final Map<String, CompiledRule> CACHE = new ConcurrentHashMap<>();
+
+    private final String fieldName;
+    private final String codeName;
+    private final boolean negated;
+
+    private CompiledRule(String fieldName, String codeName, boolean negated) {
+        this.fieldName = fieldName;
+        this.codeName = codeName;
+        this.negated = negated;
+    }
+
+    static CompiledRule compile(String expression) {
+        return CACHE.computeIfAbsent(expression, CompiledRule::doCompile);
+    }
+
+    private static CompiledRule doCompile(String expression) {
+        final Matcher presence = PRESENCE_TEST.matcher(expression);
+        if (presence.matches()) {
+            return new CompiledRule(presence.group(2), null, !presence.group(1).isEmpty());
+        }
+        final Matcher code = CODE_TEST.matcher(expression);
+        if (code.matches()) {
+            return new CompiledRule(code.group(1), code.group(3), code.group(2).equals("!"));
+        }
+        return new CompiledRule(null, null, false);
+    }
+
+    boolean isPresenceTest() {
+        return fieldName != null && codeName == null;
+    }
+
+    boolean isCodeTest() {
+        return codeName != null;
+    }
+
+    /**
+     * The field tested by the presence or code test
+     */
+    String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * The code the field is compared with by the code test
+     */
+    String getCodeName() {
+        return codeName;
+    }
+
+    boolean isNegated() {
+        return negated;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exactpro.th2.codec.fix.orchestra.validator;
+
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Names and datatypes of the fields of a repository. Fields of the base scenario are kept in an open addressing table
+ * with primitive tags provided by the implementation, fields of other scenarios are rare and kept in a map
+ */
+abstract class FieldTable {
+    private static final String BASE_SCENARIO = "base";
+
+    private final Map<String, FieldType> scenarioFields = new HashMap<>();
+
+    protected FieldTable(List<FieldType> fields) {
+        for (final FieldType field : fields) {
+            if (!isBase(field)) {
+                // the first field with the id and scenario wins as it does for RepositoryAccessor
+                scenarioFields.putIfAbsent(key(field.getId().intValue(), field.getScenario()), field);
+            }
+        }
+    }
+
+    static FieldTable create(List<FieldType> fields, boolean offHeap) {
+        return offHeap ? new MappedFieldTable(fields) : new HeapFieldTable(fields);
+    }
+
+    /**
+     * Returns the name of the field or {@code null} if there is no field with the tag in the scenario
+     */
+    String getName(int tag, String scenario) {
+        if (BASE_SCENARIO.equals(scenario)) {
+            return getBaseName(tag);
+        }
+        final FieldType field = scenarioFields.get(key(tag, scenario));
+        return field == null ? null : field.getName();
+    }
+
+    /**
+     * Returns the datatype of the field or {@code null} if there is no field with the tag in the scenario
+     */
+    String getDatatype(int tag, String scenario) {
+        if (BASE_SCENARIO.equals(scenario)) {
+            return getBaseDatatype(tag);
+        }
+        final FieldType field = scenarioFields.get(key(tag, scenario));
+        return field == null ? null : field.getType();
+    }
+
+    protected abstract String getBaseName(int tag);
+
+    protected abstract String getBaseDatatype(int tag);
+
+    protected static boolean isBase(FieldType field) {
+        return BASE_SCENARIO.equals(field.getScenario());
+    }
+
+    /**
+     * Returns the mask of an open addressing table with the load factor between 1/4 and 1/2
+     */
+    protected static int tableMask(List<FieldType> fields) {
+        int baseFields = 0;
+        for (final FieldType field : fields) {
+            if (isBase(field)) {
+                baseFields++;
+            }
+        }
+        return Integer.highestOneBit(Math.max(baseFields, 1) * 4 - 1) - 1;
+    }
+
+    /**
+     * Returns the home slot of the tag: the top bits of its Fibonacci hash, as many as the table of the mask has index bits.
+     * The low bits of the product depend on the low bits of the tag only, so they would cluster sparse tags
+     */
+    protected static int slot(int tag, int mask) {
+        return (tag * -0x61c88647) >>> Integer.numberOfLeadingZeros(mask);
+    }
+
+    private static String key(int tag, String scenario) {
+        return tag + ":" + scenario;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exactpro.th2.codec.fix.orchestra.validator;
+
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Field table on the heap: primitive tags and parallel arrays of names and datatypes. The strings are taken
+ * from one pool, so the datatype names repeated by thousands of fields are single instances
+ */
+final class HeapFieldTable extends FieldTable {
+    private final int mask;
+    private final int[] tags;
+    private final String[] names;
+    private final String[] datatypes;
+
+    HeapFieldTable(List<FieldType> fields) {
+        super(fields);
+        final Map<String, String> pool = new HashMap<>();
+        mask = tableMask(fields);
+        tags = new int[mask + 1];
+        names = new String[mask + 1];
+        datatypes = new String[mask + 1];
+
+        for (final FieldType field : fields) {
+            if (!isBase(field)) {
+                continue;
+            }
+            final int tag = field.getId().intValue();
+            int slot = slot(tag, mask);
+            while (tags[slot] != 0 && tags[slot] != tag) {
+                slot = (slot + 1) & mask;
+            }
+            if (tags[slot] == 0) {
+                tags[slot] = tag;
+                names[slot] = pool.computeIfAbsent(field.getName(), name -> name);
+                datatypes[slot] = pool.computeIfAbsent(field.getType(), type -> type);
+            }
+        }
+    }
+
+    @Override
+    protected String getBaseName(int tag) {
+        final int slot = find(tag);
+        return slot < 0 ? null : names[slot];
+    }
+
+    @Override
+    protected String getBaseDatatype(int tag) {
+        final int slot = find(tag);
+        return slot < 0 ? null : datatypes[slot];
+    }
+
+    private int find(int tag) {
+        int slot = slot(tag, mask);
+        while (true) {
+            final int key = tags[slot];
+            if (key == tag) {
+                return slot;
+            }
+            if (key == 0) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+}
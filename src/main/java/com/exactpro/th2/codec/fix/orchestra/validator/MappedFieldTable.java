@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exactpro.th2.codec.fix.orchestra.validator;
+
+import io.fixprotocol._2020.orchestra.repository.FieldType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Field table in a memory-mapped region: the slots of the open addressing table ({@code tag}, offset of the name and
+ * index of the datatype) followed by the pool of names. Only the distinct datatypes, a few dozen even for large
+ * repositories, are kept on the heap. A name is decoded from the pool on its first lookup and cached by its slot,
+ * so only the names of the fields actually validated are kept on the heap, at the cost of a reference per slot
+ */
+final class MappedFieldTable extends FieldTable {
+    private static final int SLOT_SIZE = 3 * Integer.BYTES;
+
+    private final int mask;
+    private final ByteBuffer buffer;
+    private final String[] datatypes;
+    // names decoded from the pool by slot, racing lookups decode the same immutable name
+    private final String[] names;
+
+    MappedFieldTable(List<FieldType> fields) {
+        super(fields);
+        mask = tableMask(fields);
+        final int slotsSize = (mask + 1) * SLOT_SIZE;
+        final ByteBuffer slots = ByteBuffer.allocate(slotsSize);
+        final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        final Map<String, Integer> nameOffsets = new HashMap<>();
+        final Map<String, Integer> datatypeIndexes = new HashMap<>();
+        final List<String> datatypes = new ArrayList<>();
+
+        for (final FieldType field : fields) {
+            if (!isBase(field)) {
+                continue;
+            }
+            final int tag = field.getId().intValue();
+            int slot = slot(tag, mask);
+            while (slots.getInt(slot * SLOT_SIZE) != 0 && slots.getInt(slot * SLOT_SIZE) != tag) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots.getInt(slot * SLOT_SIZE) != 0) {
+                continue;
+            }
+            final int nameOffset = nameOffsets.computeIfAbsent(field.getName(), name -> {
+                final byte[] bytes = name.getBytes(UTF_8);
+                final int offset = slotsSize + pool.size();
+                pool.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+                pool.writeBytes(bytes);
+                return offset;
+            });
+            final int datatypeIndex = datatypeIndexes.computeIfAbsent(field.getType(), type -> {
+                datatypes.add(type);
+                return datatypes.size() - 1;
+            });
+            slots.putInt(slot * SLOT_SIZE, tag)
+                    .putInt(slot * SLOT_SIZE + Integer.BYTES, nameOffset)
+                    .putInt(slot * SLOT_SIZE + 2 * Integer.BYTES, datatypeIndex);
+        }
+
+        this.datatypes = datatypes.toArray(new String[0]);
+        names = new String[mask + 1];
+        buffer = map(slots, ByteBuffer.wrap(pool.toByteArray()));
+    }
+
+    @Override
+    protected String getBaseName(int tag) {
+        final int slot = find(tag);
+        if (slot < 0) {
+            return null;
+        }
+        final String name = names[slot];
+        return name != null ? name : (names[slot] = decodeName(slot));
+    }
+
+    private String decodeName(int slot) {
+        final int offset = buffer.getInt(slot * SLOT_SIZE + Integer.BYTES);
+        final byte[] bytes = new byte[buffer.getInt(offset)];
+        for (int index = 0; index < bytes.length; index++) {
+            bytes[index] = buffer.get(offset + Integer.BYTES + index);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    @Override
+    protected String getBaseDatatype(int tag) {
+        final int slot = find(tag);
+        return slot < 0 ? null : datatypes[buffer.getInt(slot * SLOT_SIZE + 2 * Integer.BYTES)];
+    }
+
+    private int find(int tag) {
+        int slot = slot(tag, mask);
+        while (true) {
+            final int key = buffer.getInt(slot * SLOT_SIZE);
+            if (key == tag) {
+                return slot;
+            }
+            if (key == 0) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Writes the regions to a temporary file and maps it. The file is deleted right away, the mapping outlives it on POSIX systems
+     */
+    private static ByteBuffer map(ByteBuffer... regions) {
+        try {
+            final Path file = Files.createTempFile("orchestra-fields", ".bin");
+            try (final FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+                for (final ByteBuffer region : regions) {
+                    while (region.hasRemaining()) {
+                        channel.write(region);
+                    }
+                }
+                return channel.map(READ_ONLY, 0, channel.size());
+            } finally {
+                try {
+                    Files.delete(file);
+                } catch (final IOException e) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to map field table", e);
+        }
+    }
+}
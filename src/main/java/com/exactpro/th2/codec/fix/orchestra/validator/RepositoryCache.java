@@ -26,50 +26,82 @@ import io.fixprotocol._2020.orchestra.repository.Repository;
 import io.fixprotocol.orchestra.model.quickfix.RepositoryAccessor;
 import org.apache.commons.collections4.map.LRUMap;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
+/**
+ * Caches lookups of {@link RepositoryAccessor}. The caches are synchronized so the instance can be shared between threads.
+ * Lookups are done outside the locks, so threads missing the same key may scan the repository concurrently and the first result is kept
+ */
 public class RepositoryCache extends RepositoryAccessor {
 
-    private final LRUMap<GroupRefType, GroupType> groupCache;
-    private final LRUMap<ComponentRefType, ComponentType> componentCache;
-    private final LRUMap<BinaryKey<Integer, String>, String> fieldDataTypeCache;
-    private final LRUMap<String, Datatype> datatypeCache;
-    private final LRUMap<BinaryKey<String, String>, CodeSetType> codeSetTypeCache;
-    private final LRUMap<MessageType, List<Object>> messageMembersCache;
+    private final Map<GroupRefType, GroupType> groupCache;
+    private final Map<ComponentRefType, ComponentType> componentCache;
+    private final FieldTable fieldTable;
+    private final Map<String, Datatype> datatypeCache;
+    private final Map<BinaryKey<String, String>, CodeSetType> codeSetTypeCache;
+    private final Map<MessageType, List<Object>> messageMembersCache;
 
     public RepositoryCache(Repository repository, int cacheSize) {
+        this(repository, cacheSize, false);
+    }
+
+    /**
+     * @param offHeap keeps names and datatypes of fields in a memory-mapped region instead of the heap
+     */
+    public RepositoryCache(Repository repository, int cacheSize, boolean offHeap) {
         super(repository);
-        fieldDataTypeCache = new LRUMap<>(cacheSize);
-        codeSetTypeCache = new LRUMap<>(cacheSize);
-        groupCache = new LRUMap<>(cacheSize);
-        componentCache = new LRUMap<>(cacheSize);
-        datatypeCache = new LRUMap<>(cacheSize);
-        messageMembersCache = new LRUMap<>(cacheSize);
+        fieldTable = FieldTable.create(repository.getFields().getField(), offHeap);
+        codeSetTypeCache = Collections.synchronizedMap(new LRUMap<>(cacheSize));
+        groupCache = Collections.synchronizedMap(new LRUMap<>(cacheSize));
+        componentCache = Collections.synchronizedMap(new LRUMap<>(cacheSize));
+        datatypeCache = Collections.synchronizedMap(new LRUMap<>(cacheSize));
+        messageMembersCache = Collections.synchronizedMap(new LRUMap<>(cacheSize));
     }
 
     public List<Object> getMessageMembers(MessageType messageType) {
-        return messageMembersCache.computeIfAbsent(messageType, super::getMessageMembers);
+        return computeIfAbsent(messageMembersCache, messageType, super::getMessageMembers);
     }
 
     public CodeSetType getCodeset(String name, String scenario) {
-        return codeSetTypeCache.computeIfAbsent(new BinaryKey<>(name, scenario), k -> super.getCodeset(k.first, k.second));
+        return computeIfAbsent(codeSetTypeCache, new BinaryKey<>(name, scenario), k -> super.getCodeset(k.first, k.second));
     }
 
     public Datatype getDatatype(String datatypeName) {
-        return datatypeCache.computeIfAbsent(datatypeName, super::getDatatype);
+        return computeIfAbsent(datatypeCache, datatypeName, super::getDatatype);
     }
 
     public String getFieldDatatype(int id, String scenario) {
-        return fieldDataTypeCache.computeIfAbsent(new BinaryKey<>(id, scenario), k -> super.getFieldDatatype(k.first, k.second));
+        return fieldTable.getDatatype(id, scenario);
+    }
+
+    public String getFieldName(int id, String scenario) {
+        return fieldTable.getName(id, scenario);
     }
 
     public GroupType getGroupType(GroupRefType groupRefType) {
-        return groupCache.computeIfAbsent(groupRefType, super::getGroup);
+        return computeIfAbsent(groupCache, groupRefType, super::getGroup);
     }
 
     public ComponentType getComponentType(ComponentRefType componentRefType) {
-        return componentCache.computeIfAbsent(componentRefType, super::getComponent);
+        return computeIfAbsent(componentCache, componentRefType, super::getComponent);
+    }
+
+    /**
+     * Unlike {@link Map#computeIfAbsent} of a synchronized map, does not hold the lock of the {@code cache} while the {@code lookup} runs
+     */
+    private static <K, V> V computeIfAbsent(Map<K, V> cache, K key, Function<? super K, ? extends V> lookup) {
+        V value = cache.get(key);
+        if (value != null) return value;
+
+        value = lookup.apply(key);
+        if (value == null) return null;
+
+        V previous = cache.putIfAbsent(key, value);
+        return previous != null ? previous : value;
     }
 
 
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exactpro.th2.codec.fix.orchestra.validator;
+
+/**
+ * Checks performed by {@link ValidatorQfj}. Each next level skips the checks of the previous one and the most expensive remaining check
+ */
+public enum ValidationLevel {
+    /**
+     * Presence of fields, DSL rules of conditionally required fields and codes of enumerated fields
+     */
+    FULL,
+    /**
+     * Presence of fields and codes of enumerated fields
+     */
+    NO_RULES,
+    /**
+     * Presence of fields only
+     */
+    NO_CODESETS;
+
+    public boolean evaluatesRules() {
+        return this == FULL;
+    }
+
+    public boolean checksCodeSets() {
+        return this != NO_CODESETS;
+    }
+}
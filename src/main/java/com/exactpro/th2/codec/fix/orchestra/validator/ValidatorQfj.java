@@ -14,6 +14,7 @@
  */
 package com.exactpro.th2.codec.fix.orchestra.validator;
 
+import com.exactpro.th2.codec.fix.orchestra.scope.CodeSetSymbols;
 import com.exactpro.th2.codec.fix.orchestra.scope.MessageScope;
 import io.fixprotocol._2020.orchestra.repository.CodeSetType;
 import io.fixprotocol._2020.orchestra.repository.CodeType;
@@ -29,8 +30,8 @@ import io.fixprotocol._2020.orchestra.repository.PresenceT;
 import io.fixprotocol.orchestra.dsl.antlr.Evaluator;
 import io.fixprotocol.orchestra.dsl.antlr.ScoreException;
 import io.fixprotocol.orchestra.dsl.antlr.SemanticErrorListener;
-import io.fixprotocol.orchestra.message.CodeSetScope;
 import io.fixprotocol.orchestra.message.Validator;
+import io.fixprotocol.orchestra.model.FixType;
 import io.fixprotocol.orchestra.model.FixValue;
 import io.fixprotocol.orchestra.model.PathStep;
 import io.fixprotocol.orchestra.model.Scope;
@@ -44,13 +45,16 @@ import quickfix.Message;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.BiPredicate;
 
 public class ValidatorQfj implements Validator<Message> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ValidatorQfj.class);
+    private static final PathStep IN_STEP = new PathStep("in.");
 
     private static class ErrorListener implements SemanticErrorListener {
         private final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
@@ -103,6 +107,13 @@ public class ValidatorQfj implements Validator<Message> {
 
     private final RepositoryCache cache;
 
+    private final Map<MessageType, MessageRules> messageRulesCache = new HashMap<>();
+    // the message being validated and the rules bound to its fields
+    private Message message;
+    private MessageRules messageRules;
+    // the scope shared by the messages of a batch, rebound to the message being validated
+    private MessageScope batchScope;
+
     public ValidatorQfj(RepositoryCache cache, SymbolResolver symbolResolver) {
         this.symbolResolver = symbolResolver;
         evaluator = new Evaluator(symbolResolver, errorListener);
@@ -111,17 +122,22 @@ public class ValidatorQfj implements Validator<Message> {
 
     @Override
     public void validate(Message message, MessageType messageType) throws TestExceptionImpl {
+        validate(message, messageType, ValidationLevel.FULL);
+    }
+
+    public void validate(Message message, MessageType messageType, ValidationLevel level) throws TestExceptionImpl {
         final TestExceptionImpl testException =
                 new TestExceptionImpl(messageType.getName());
+        bind(message, messageType);
         try (final MessageScope messageScope =
                      new MessageScope(message, messageType, cache, symbolResolver, evaluator)) {
-            symbolResolver.nest(new PathStep("in."), messageScope);
+            symbolResolver.nest(IN_STEP, messageScope);
             try (Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT)) {
                 local.nest(new PathStep(messageType.getName()), messageScope);
 
                 final List<Object> members = cache.getMessageMembers(messageType);
 
-                validateFieldMap(message, testException, members);
+                validateFieldMap(message, testException, members, level);
             }
         } catch (final Exception e) {
             throw new RuntimeException("Internal error", e);
@@ -132,17 +148,160 @@ public class ValidatorQfj implements Validator<Message> {
         }
     }
 
+    /**
+     * Validates the {@code messages} of the same type and scenario together. The scopes are set up once for the batch
+     * and each member of the message type is checked across all messages before the next one.
+     * Returns the errors of each message in the order of {@code messages}, {@code null} for a valid message
+     */
+    public List<TestExceptionImpl> validateBatch(List<Message> messages, MessageType messageType, ValidationLevel level) {
+        final List<TestExceptionImpl> exceptions = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            exceptions.add(new TestExceptionImpl(messageType.getName()));
+        }
+        if (messages.isEmpty()) {
+            return exceptions;
+        }
+        bind(messages.get(0), messageType);
+        try (final MessageScope messageScope =
+                     new MessageScope(message, messageType, cache, symbolResolver, evaluator)) {
+            symbolResolver.nest(IN_STEP, messageScope);
+            try (Scope local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT)) {
+                local.nest(new PathStep(messageType.getName()), messageScope);
+                batchScope = messageScope;
+                validateColumns(messages, exceptions, cache.getMessageMembers(messageType), level);
+            }
+        } catch (final Exception e) {
+            throw new RuntimeException("Internal error", e);
+        } finally {
+            batchScope = null;
+        }
+        for (int i = 0; i < exceptions.size(); i++) {
+            if (!exceptions.get(i).hasDetails()) {
+                exceptions.set(i, null);
+            }
+        }
+        return exceptions;
+    }
+
+    private void validateColumns(List<Message> messages, List<TestExceptionImpl> exceptions,
+                                 List<Object> members, ValidationLevel level) {
+        for (final Object member : members) {
+            if (member instanceof FieldRefType) {
+                final FieldRefType fieldRefType = (FieldRefType) member;
+                for (int i = 0; i < messages.size(); i++) {
+                    validateField(select(messages.get(i)), exceptions.get(i), fieldRefType, level);
+                }
+            } else if (member instanceof GroupRefType) {
+                final GroupType groupType = cache.getGroupType((GroupRefType) member);
+                final int groupTag = groupType.getNumInGroup().getId().intValue();
+                for (int i = 0; i < messages.size(); i++) {
+                    // entries differ from message to message, so they are validated row by row
+                    for (final Group group : select(messages.get(i)).getGroups(groupTag)) {
+                        validateFieldMap(group, exceptions.get(i), groupType.getComponentRefOrGroupRefOrFieldRef(), level);
+                    }
+                }
+            } else if (member instanceof ComponentRefType) {
+                final ComponentType component = cache.getComponentType((ComponentRefType) member);
+                if (!component.getName().equals("StandardHeader")
+                        && !component.getName().equals("StandardTrailer"))
+                    validateColumns(messages, exceptions, component.getComponentRefOrGroupRefOrFieldRef(), level);
+            }
+        }
+    }
+
+    private Message select(Message message) {
+        if (this.message != message) {
+            this.message = message;
+            batchScope.bind(message);
+        }
+        return message;
+    }
+
+    /**
+     * Starts validation of the {@code message} without the entries of its repeating group with the {@code groupTag} counter.
+     * The entries are validated one by one with {@link Session#validateEntry} so they do not have to be kept in the message.
+     * The scopes of the message stay nested in the symbol resolver until the session is closed
+     */
+    public Session begin(Message message, MessageType messageType, ValidationLevel level, int groupTag) {
+        return new Session(message, messageType, level, groupTag);
+    }
+
+    public final class Session implements AutoCloseable {
+        private final Message message;
+        private final ValidationLevel level;
+        private final TestExceptionImpl testException;
+        private final MessageScope messageScope;
+        private final Scope local;
+        private final List<Object> members;
+        private final GroupType groupType;
+
+        private Session(Message message, MessageType messageType, ValidationLevel level, int groupTag) {
+            this.message = message;
+            this.level = level;
+            testException = new TestExceptionImpl(messageType.getName());
+            members = cache.getMessageMembers(messageType);
+            groupType = findGroup(members, groupTag);
+            if (groupType == null) {
+                throw new IllegalArgumentException("No group " + groupTag + " in message " + messageType.getName());
+            }
+            bind(message, messageType);
+            messageScope = new MessageScope(message, messageType, cache, symbolResolver, evaluator);
+            symbolResolver.nest(IN_STEP, messageScope);
+            local = (Scope) symbolResolver.resolve(SymbolResolver.LOCAL_ROOT);
+            local.nest(new PathStep(messageType.getName()), messageScope);
+        }
+
+        public void validateEntry(FieldMap entry) {
+            validateFieldMap(entry, testException, groupType.getComponentRefOrGroupRefOrFieldRef(), level);
+        }
+
+        /**
+         * Validates the fields of the message and throws the errors of the message and all its validated entries
+         */
+        public void finish() throws TestExceptionImpl {
+            validateFieldMap(message, testException, members, level);
+            if (testException.hasDetails()) {
+                throw testException;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                local.close();
+                messageScope.close();
+            } catch (final Exception e) {
+                throw new RuntimeException("Internal error", e);
+            }
+        }
+    }
+
+    private GroupType findGroup(List<Object> members, int groupTag) {
+        for (final Object member : members) {
+            if (member instanceof GroupRefType) {
+                final GroupType groupType = cache.getGroupType((GroupRefType) member);
+                if (groupType.getNumInGroup().getId().intValue() == groupTag) {
+                    return groupType;
+                }
+            } else if (member instanceof ComponentRefType) {
+                final ComponentType component = cache.getComponentType((ComponentRefType) member);
+                final GroupType groupType = findGroup(component.getComponentRefOrGroupRefOrFieldRef(), groupTag);
+                if (groupType != null) {
+                    return groupType;
+                }
+            }
+        }
+        return null;
+    }
+
     private void validateField(FieldMap fieldMap, TestExceptionImpl testException,
-                               FieldRefType fieldRefType) {
+                               FieldRefType fieldRefType, ValidationLevel level) {
         final int id = fieldRefType.getId().intValue();
         final String scenario = fieldRefType.getScenario();
         final PresenceT presence = fieldRefType.getPresence();
 
         final String dataTypeString = cache.getFieldDatatype(id, scenario);
-        final CodeSetType codeSet = cache.getCodeset(dataTypeString, scenario);
-        if (codeSet != null) {
-            symbolResolver.nest(new PathStep("^"), new CodeSetScope(codeSet));
-        }
+        final CodeSetType codeSet = level.checksCodeSets() ? cache.getCodeset(dataTypeString, scenario) : null;
         final boolean isPresentInMessage = fieldMap.isSetField(id);
 
         switch (presence) {
@@ -156,11 +315,15 @@ public class ValidatorQfj implements Validator<Message> {
                 }
                 break;
             case OPTIONAL:
-                // Evaluate rules if present
+                if (!level.evaluatesRules()) {
+                    break;
+                }
+                // Evaluate rules if present. Rules can only make a field required, but the evaluator reports the errors
+                // of an expression whether the field is present or not, so only rules bound to the message skip the evaluator
                 final List<FieldRuleType> rules = fieldRefType.getRule();
                 for (final FieldRuleType rule : rules) {
                     final String when = rule.getWhen();
-                    if (predicateEvaluator.test(when, testException) && !isPresentInMessage) {
+                    if (holds(when, codeSet, testException) && !isPresentInMessage) {
                         testException.addDetail("Missing required field " + id, "REQUIRED", "(not present)");
                         fillException(testException, id, scenario);
                     }
@@ -174,7 +337,7 @@ public class ValidatorQfj implements Validator<Message> {
                 break;
         }
 
-        if (isPresentInMessage) {
+        if (isPresentInMessage && level.checksCodeSets()) {
             try {
                 final String value = fieldMap.getString(id);
                 final String datatypeName = cache.getFieldDatatype(id, scenario);
@@ -201,23 +364,107 @@ public class ValidatorQfj implements Validator<Message> {
         }
     }
 
+    private void bind(Message message, MessageType messageType) {
+        this.message = message;
+        messageRules = messageRulesCache.computeIfAbsent(messageType, MessageRules::new);
+    }
+
+    private boolean holds(String when, CodeSetType codeSet, TestExceptionImpl testException) {
+        final Boolean result = messageRules.bind(when).test(message);
+        if (result != null) {
+            return result;
+        }
+        if (codeSet != null) {
+            symbolResolver.nest(CodeSetSymbols.CODE_SET_STEP, CodeSetSymbols.of(codeSet));
+        }
+        return predicateEvaluator.test(when, testException);
+    }
+
+    private interface BoundRule {
+        BoundRule EXPRESSION = fieldMap -> null;
+
+        /**
+         * Returns the outcome of the rule, {@code null} if it has to be evaluated by the DSL evaluator
+         */
+        Boolean test(FieldMap fieldMap);
+    }
+
+    /**
+     * Rules bound to the top-level fields of a message type. Field names and {@code ^Code} references are resolved
+     * once per expression, so presence tests and code comparisons are evaluated without the DSL evaluator
+     */
+    private final class MessageRules {
+        private final Map<String, FieldRefType> fields = new HashMap<>();
+        private final Map<String, BoundRule> rules = new HashMap<>();
+
+        MessageRules(MessageType messageType) {
+            // the first field with the name wins the same way MessageScope resolves fields
+            for (final Object member : cache.getMessageMembers(messageType)) {
+                if (member instanceof FieldRefType) {
+                    final FieldRefType fieldRefType = (FieldRefType) member;
+                    fields.putIfAbsent(cache.getFieldName(fieldRefType.getId().intValue(), fieldRefType.getScenario()), fieldRefType);
+                }
+            }
+        }
+
+        BoundRule bind(String when) {
+            return rules.computeIfAbsent(when, this::doBind);
+        }
+
+        private BoundRule doBind(String when) {
+            final CompiledRule rule = CompiledRule.compile(when);
+            final FieldRefType fieldRefType = rule.getFieldName() == null ? null : fields.get(rule.getFieldName());
+            if (fieldRefType == null) {
+                return BoundRule.EXPRESSION;
+            }
+            final int id = fieldRefType.getId().intValue();
+            // an absent field with a default value is resolved to the default one
+            final String defaultValue = fieldRefType.getValue();
+            final boolean negated = rule.isNegated();
+            if (rule.isPresenceTest()) {
+                return fieldMap -> (fieldMap.isSetField(id) || defaultValue != null) != negated;
+            }
+            final String scenario = fieldRefType.getScenario();
+            final CodeSetType codeSet = cache.getCodeset(cache.getFieldDatatype(id, scenario), scenario);
+            final FixValue<?> code = codeSet == null ? null : CodeSetSymbols.of(codeSet).getCode(rule.getCodeName());
+            if (code == null) {
+                return BoundRule.EXPRESSION;
+            }
+            final FixType type = code.getType();
+            final Object expected = code.getValue();
+            return fieldMap -> {
+                try {
+                    final String value = fieldMap.isSetField(id) ? fieldMap.getString(id) : defaultValue;
+                    // the evaluator reports comparisons with absent fields and malformed values,
+                    // a char value is malformed unless it is a single character
+                    if (value == null || type == FixType.charType && value.length() != 1) {
+                        return null;
+                    }
+                    return expected.equals(type.fromString(value)) != negated;
+                } catch (final FieldNotFound | RuntimeException e) {
+                    return null;
+                }
+            };
+        }
+    }
+
     private void fillException(TestExceptionImpl ex, int tag, String scenario) {
         ex.getTags().add(tag);
         ex.setScenario(scenario);
     }
 
     private void validateFieldMap(FieldMap fieldMap, TestExceptionImpl testException,
-                                  List<Object> members) {
+                                  List<Object> members, ValidationLevel level) {
         for (final Object member : members) {
             if (member instanceof FieldRefType) {
                 final FieldRefType fieldRefType = (FieldRefType) member;
-                validateField(fieldMap, testException, fieldRefType);
+                validateField(fieldMap, testException, fieldRefType, level);
             } else if (member instanceof GroupRefType) {
                 final GroupRefType groupRefType = (GroupRefType) member;
                 final GroupType groupType = cache.getGroupType(groupRefType);
                 final List<Group> groups = fieldMap.getGroups(groupType.getNumInGroup().getId().intValue());
                 for (final Group group : groups) {
-                    validateFieldMap(group, testException, groupType.getComponentRefOrGroupRefOrFieldRef());
+                    validateFieldMap(group, testException, groupType.getComponentRefOrGroupRefOrFieldRef(), level);
                 }
             } else if (member instanceof ComponentRefType) {
                 final ComponentRefType componentRefType = (ComponentRefType) member;
@@ -225,7 +472,7 @@ public class ValidatorQfj implements Validator<Message> {
                 if (!component.getName().equals("StandardHeader")
                         && !component.getName().equals("StandardTrailer"))
                     validateFieldMap(fieldMap, testException,
-                            component.getComponentRefOrGroupRefOrFieldRef());
+                            component.getComponentRefOrGroupRefOrFieldRef(), level);
             }
         }
     }
@@ -20,14 +20,41 @@ import com.exactpro.th2.codec.ValidateException
 import com.exactpro.th2.codec.api.IPipelineCodec
 import com.exactpro.th2.codec.api.IReportingContext
 import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodecFactory.Companion.PROTOCOL
-import com.exactpro.th2.codec.fix.orchestra.util.FixMessage
+import com.exactpro.th2.codec.fix.orchestra.metrics.CodecMetrics
+import com.exactpro.th2.codec.fix.orchestra.metrics.MessageMetrics
+import com.exactpro.th2.codec.fix.orchestra.metrics.Operation.DECODE
+import com.exactpro.th2.codec.fix.orchestra.metrics.Operation.ENCODE
+import com.exactpro.th2.codec.fix.orchestra.metrics.Phase.ORCHESTRA_VALIDATION
+import com.exactpro.th2.codec.fix.orchestra.metrics.Phase.OUTPUT_BUILD
+import com.exactpro.th2.codec.fix.orchestra.metrics.Phase.PARSE
+import com.exactpro.th2.codec.fix.orchestra.metrics.Phase.QFJ_VALIDATION
+import com.exactpro.th2.codec.fix.orchestra.metrics.Phase.STRUCTURE_DECODE
+import com.exactpro.th2.codec.fix.orchestra.metrics.Phase.STRUCTURE_ENCODE
+import com.exactpro.th2.codec.fix.orchestra.util.AdaptiveValidation
+import com.exactpro.th2.codec.fix.orchestra.util.FixFieldPool
+import com.exactpro.th2.codec.fix.orchestra.util.InferredScenario
+import com.exactpro.th2.codec.fix.orchestra.util.RawFixScanner
+import com.exactpro.th2.codec.fix.orchestra.util.ScenarioInference
+import com.exactpro.th2.codec.fix.orchestra.util.SessionFastLane
+import com.exactpro.th2.codec.fix.orchestra.util.StreamingDecoder
+import com.exactpro.th2.codec.fix.orchestra.util.TieredDecoder
+import com.exactpro.th2.codec.fix.orchestra.util.TieredEncoder
+import com.exactpro.th2.codec.fix.orchestra.util.ValueInternTable
+import com.exactpro.th2.codec.fix.orchestra.util.ValidationSampler
+import com.exactpro.th2.codec.fix.orchestra.util.applVerId
 import com.exactpro.th2.codec.fix.orchestra.util.beginString
-import com.exactpro.th2.codec.fix.orchestra.util.decode
+import com.exactpro.th2.codec.fix.orchestra.util.decodeHeader
 import com.exactpro.th2.codec.fix.orchestra.util.details
-import com.exactpro.th2.codec.fix.orchestra.util.encode
+import com.exactpro.th2.codec.fix.orchestra.util.estimateRetainedSize
 import com.exactpro.th2.codec.fix.orchestra.util.loadMessageStructures
+import com.exactpro.th2.codec.fix.orchestra.util.loadScenarioStructures
+import com.exactpro.th2.codec.fix.orchestra.util.peekMsgType
+import com.exactpro.th2.codec.fix.orchestra.util.toProjections
+import com.exactpro.th2.codec.fix.orchestra.validator.ValidationLevel
 import com.exactpro.th2.codec.fix.orchestra.validator.ValidatorQfj
+import com.exactpro.th2.common.grpc.AnyMessage
 import com.exactpro.th2.common.grpc.Direction
+import com.exactpro.th2.common.grpc.Message
 import com.exactpro.th2.common.grpc.MessageGroup
 import com.exactpro.th2.common.grpc.RawMessage
 import com.exactpro.th2.common.message.direction
@@ -45,24 +72,63 @@ import com.exactpro.th2.codec.fix.orchestra.validator.RepositoryCache
 import com.exactpro.th2.codec.fix.orchestra.validator.TestExceptionImpl
 import kotlin.text.Charsets.UTF_8
 import quickfix.Message as QuickfixMessage
+import quickfix.Message.Header as QuickfixHeader
 
 class FixOrchestraCodec(
     private val settings: FixOrchestraCodecSettings,
     private val dictionary: DataDictionary,
     repository: Repository,
+    pool: FixFieldPool = FixFieldPool(),
+    dictionaryAlias: String = MAIN_DICTIONARY,
 ) : IPipelineCodec {
     private val logger = KotlinLogging.logger {}
 
-    private val cacheAccessor = RepositoryCache(repository, settings.cacheSize)
-    private val validator = ValidatorQfj(cacheAccessor, SymbolResolver())
+    private val cacheAccessor = RepositoryCache(repository, settings.cacheSize, settings.offHeapFieldTable)
+    // the validator keeps the scopes of a message being validated in its symbol resolver
+    private val validator = ThreadLocal.withInitial { ValidatorQfj(cacheAccessor, SymbolResolver()) }
+
+    private val structuresByName = repository.loadMessageStructures(settings.inlineComponents, pool)
+    private val encodersByName = structuresByName.mapValues { TieredEncoder(it.value, settings.encoderCompileThreshold) }
+    // shared by decoders of all messages so a value seen in one message type is reused by the others
+    private val internTables = settings.internedFields.associateWith { ValueInternTable(settings.internTableSize) }
+    private val decodersByType = structuresByName.values.associate { it.type to TieredDecoder(it, settings.decoderCompileThreshold, internTables) }
+    private val projectionsByType = settings.projections.entries.associate { (name, projections) ->
+        val structure = requireNotNull(structuresByName[name]) { "Unknown message in projections: $name" }
+        structure.type to structure.toProjections(projections, settings.decoderCompileThreshold, internTables)
+    }
+    private val headerOnlyTypes: Set<String> = when (HEADER_ONLY_ALL) {
+        in settings.headerOnly -> decodersByType.keys
+        else -> settings.headerOnly.mapTo(hashSetOf()) { name ->
+            requireNotNull(structuresByName[name]) { "Unknown message in header-only messages: $name" }.type
+        }
+    }
+    private val streamingByType = settings.streamedGroups.entries.associate { (name, path) ->
+        val structure = requireNotNull(structuresByName[name]) { "Unknown message in streamed groups: $name" }
+        require(name !in settings.projections) { "Message with streamed group cannot be projected: $name" }
+        structure.type to StreamingDecoder(structure, path, internTables)
+    }
+    private val samplersByType = settings.validationPolicies.entries.associate { (name, policy) ->
+        val structure = requireNotNull(structuresByName[name]) { "Unknown message in validation policies: $name" }
+        structure.type to ValidationSampler(policy)
+    }
+    private val adaptiveValidation = settings.adaptiveValidation?.let(::AdaptiveValidation)
+    private val scenarioInference = if (settings.inferScenario) ScenarioInference(repository.loadScenarioStructures(false), settings.defaultScenario) else null
+    private val sessionLane = settings.sessionMessages.mapNotNull { name ->
+        structuresByName[name].also { if (it == null) logger.warn { "Session message is not found in dictionary: $name" } }
+    }.takeIf { it.isNotEmpty() }?.let { SessionFastLane(it, internTables) }
+    private val headerScanner = structuresByName.values.firstOrNull()?.let { RawFixScanner(it.header) }
 
-    private val structuresByName = repository.loadMessageStructures(settings.inlineComponents)
-    private val structuresByType = structuresByName.values.associateBy(FixMessage::type)
+    internal val beginString = repository.beginString
+    internal val applVerId = repository.applVerId
+    // the symbolic name of ApplVerID as it is set in parsed messages
+    private val applVerIdName = structuresByName.values.firstOrNull()?.header?.get(APPL_VER_ID_FIELD)?.values?.entries?.firstOrNull { it.value == applVerId }?.key
 
-    private val beginString = repository.beginString
+    private val metrics = CodecMetrics(dictionaryAlias)
 
     init {
         CharsetSupport.setCharset(UTF_8.toString())
+        logger.info { "Loaded ${structuresByName.size} message structures, estimated retained size: ${structuresByName.estimateRetainedSize() / 1024} KB" }
+        adaptiveValidation?.let { metrics.onValidationLevel(it.level) }
     }
 
     override fun encode(messageGroup: MessageGroup): MessageGroup = throw UnsupportedOperationException("use encode with context instead")
@@ -93,25 +159,38 @@ class FixOrchestraCodec(
             logger.trace { "Encoding message: ${message.toJson()}" }
 
             val name = parsed.messageType
-            val structure = requireNotNull(structuresByName[name]) { "Unknown message type: $name " }
-            val errors = if (settings.encodeErrorAsWaring) ContextHolder(context) else ListHolder()
-            val (result, encodeErrors) = structure.encode(parsed, beginString)
-            errors += encodeErrors
+            val encoder = requireNotNull(encodersByName[name]) { "Unknown message type: $name " }
             val metadata = parsed.metadata
+            val scenario = metadata.getPropertiesOrDefault(SCENARIO_PROPERTY, settings.defaultScenario)
+            val messageMetrics = metrics[ENCODE, name, scenario].apply { onMessage() }
+            val errors = if (settings.encodeErrorAsWaring) ContextHolder(context, messageMetrics) else ListHolder()
+            var time = System.nanoTime()
+            val (result, encodeErrors) = encoder.encode(parsed, beginString)
+            time = messageMetrics.record(STRUCTURE_ENCODE, time)
+            errors += encodeErrors
+
+            // the phase which failed is recorded as well, so the time is not added to the output build
+            var phase = ORCHESTRA_VALIDATION
 
             try {
-                val scenario = metadata.getPropertiesOrDefault(SCENARIO_PROPERTY, settings.defaultScenario)
                 val type = checkNotNull(cacheAccessor.getMessage(name, scenario)) { "No scenario $scenario for message: $name" }
-                validator.validate(result, type)
+                validator.get().validate(result, type)
+                time = messageMetrics.record(phase, time)
+                phase = QFJ_VALIDATION
                 dictionary.validate(result, true)
             } catch (e: TestExceptionImpl) {
+                messageMetrics.onFailure()
+                e.tags.forEach(messageMetrics::onValidationError)
                 throw ValidateException("msgType [${e.msgType}] tags [${e.tags.joinToString()}], scenario [${e.scenario}]", e.details)
             } catch (e: Exception) {
                 logger.error(e) { "Failed to validate encoded message" }
                 errors += "Encoded message validation error: ${e.message}"
+            } finally {
+                time = messageMetrics.record(phase, time)
             }
 
             if(errors.hasErrors) {
+                messageMetrics.onFailure()
                 error("Failed to encode message due to following errors:\n${errors.joinToString("\n") { " - $it" }}")
             }
 
@@ -125,6 +204,8 @@ class FixOrchestraCodec(
                     this.protocol = PROTOCOL
                 }
             }
+
+            messageMetrics.record(OUTPUT_BUILD, time)
         }
 
         return builder.build()
@@ -140,67 +221,309 @@ class FixOrchestraCodec(
         }
 
         val builder = MessageGroup.newBuilder()
+        // parsed messages of the regular path which are validated together by type and scenario
+        val batch = if (settings.batchValidation && messages.size > 1) mutableListOf<ParsedMessage>() else null
+
+        try {
+            for (message in messages) {
+                if(!message.hasRawMessage()) {
+                    builder.addMessages(message)
+                    continue
+                }
 
-        for (message in messages) {
-            if(!message.hasRawMessage()) {
-                builder.addMessages(message)
-                continue
-            }
+                val raw = message.rawMessage
+                val protocol = raw.metadata.protocol
 
-            val raw = message.rawMessage
-            val protocol = raw.metadata.protocol
+                if(protocol.isNotBlank() && protocol != PROTOCOL) {
+                    builder.addMessages(message)
+                    continue
+                }
 
-            if(protocol.isNotBlank() && protocol != PROTOCOL) {
-                builder.addMessages(message)
-                continue
-            }
+                logger.trace { "Decoding message: ${raw.toJson()}" }
 
-            logger.trace { "Decoding message: ${raw.toJson()}" }
+                val start = System.nanoTime()
+                var time = start
 
-            val quickfixMessage = try {
-                QuickfixMessage().apply { fromString(raw.body.toString(UTF_8), dictionary, true) }
-            } catch (e: Exception) {
-                throw IllegalStateException("Failed to decode message", e)
+                val session = sessionLane?.decode(raw.body)
+
+                if (session != null) {
+                    val name = session.message.messageType
+                    val scenario = raw.metadata.getPropertiesOrDefault(SCENARIO_PROPERTY, settings.defaultScenario)
+                    val messageMetrics = metrics[DECODE, name, scenario].apply { onMessage() }
+                    time = messageMetrics.record(STRUCTURE_DECODE, time)
+                    val errors = createErrorHolder(raw, context, messageMetrics)
+                    errors += session.errors
+
+                    if(errors.hasErrors) {
+                        messageMetrics.onFailure()
+                        error("Failed to decode message due to following errors:\n${errors.joinToString("\n") { " - $it" }}")
+                    }
+
+                    builder += session.message.withMetadataOf(raw)
+                    messageMetrics.record(OUTPUT_BUILD, time)
+                    continue
+                }
+
+                if (headerOnlyTypes.isNotEmpty()) {
+                    val header = headerScanner?.scan(raw.body)
+
+                    if (header != null && header.isSetField(MsgType.FIELD) && header.getString(MsgType.FIELD) in headerOnlyTypes) {
+                        val structure = decodersByType.getValue(header.getString(MsgType.FIELD)).structure
+                        val scenario = raw.metadata.getPropertiesOrDefault(SCENARIO_PROPERTY, settings.defaultScenario)
+                        val messageMetrics = metrics[DECODE, structure.name, scenario].apply { onMessage() }
+                        time = messageMetrics.record(PARSE, time)
+                        val errors = createErrorHolder(raw, context, messageMetrics)
+                        val result = structure.decodeHeader(header).apply { errors += this.errors }.message
+                        time = messageMetrics.record(STRUCTURE_DECODE, time)
+
+                        if(errors.hasErrors) {
+                            messageMetrics.onFailure()
+                            error("Failed to decode message header due to following errors:\n${errors.joinToString("\n") { " - $it" }}")
+                        }
+
+                        builder += result.withMetadataOf(raw).apply { metadataBuilder.putProperties(HEADER_ONLY_PROPERTY, "true") }
+                        messageMetrics.record(OUTPUT_BUILD, time)
+                        continue
+                    }
+                }
+
+                val streaming = if (streamingByType.isEmpty()) null else raw.body.peekMsgType()?.let(streamingByType::get)
+                val streamed = streaming?.let { decodeStreamed(raw, context, it, time) }
+
+                if (streamed != null) {
+                    builder += streamed
+                    continue
+                }
+
+                val parsed = parse(raw, start, time)
+
+                if (batch != null) {
+                    // the output is filled in when the batch is validated
+                    parsed.index = builder.messagesCount
+                    builder.addMessages(AnyMessage.getDefaultInstance())
+                    batch += parsed
+                    continue
+                }
+
+                validate(parsed)
+                builder += complete(parsed, context)
             }
+        } catch (e: Exception) {
+            // the batched messages precede the failed one, so their errors are reported first
+            if (!batch.isNullOrEmpty()) completeBatch(batch, builder, context)
+            throw e
+        }
+
+        if (!batch.isNullOrEmpty()) {
+            completeBatch(batch, builder, context)
+        }
+
+        return builder.build()
+    }
+
+    private fun parse(raw: RawMessage, start: Long, time: Long): ParsedMessage {
+        val quickfixMessage = try {
+            QuickfixMessage().apply { fromString(raw.body.toString(UTF_8), dictionary, true) }
+        } catch (e: Exception) {
+            throw IllegalStateException("Failed to decode message", e)
+        }
+
+        val messageType = quickfixMessage.header.getString(MsgType.FIELD)
+        val decoder = requireNotNull(decodersByType[messageType]) { "Unknown message type: $messageType" }
+        val structure = decoder.structure
+        val metadata = raw.metadata
+        val inferred = if (scenarioInference == null || SCENARIO_PROPERTY in metadata.propertiesMap) null else scenarioInference.infer(structure.name, quickfixMessage)
+        val scenario = inferred?.scenario ?: metadata.getPropertiesOrDefault(SCENARIO_PROPERTY, settings.defaultScenario)
+        val messageMetrics = metrics[DECODE, structure.name, scenario].apply { onMessage() }
+        val now = messageMetrics.record(PARSE, time)
+        val projection = projectionsByType[messageType]?.get(scenario)
+        val validate = (projection == null || projection.validate) && samplersByType[messageType]?.shouldValidate() != false
+
+        return ParsedMessage(raw, quickfixMessage, structure.name, scenario, inferred, projection?.decoder ?: decoder, validate, messageMetrics, now - start)
+    }
 
-            val messageType = quickfixMessage.header.getString(MsgType.FIELD)
-            val structure = requireNotNull(structuresByType[messageType]) { "Unknown message type: $messageType" }
-            val metadata = raw.metadata
-            val errors = when {
-                settings.encodeErrorAsWaring && raw.wasSentByTh2 -> DummyHolder()
-                settings.decodeErrorAsWaring -> ContextHolder(context)
-                else -> ListHolder()
+    private fun validate(parsed: ParsedMessage) {
+        val time = System.nanoTime()
+
+        try {
+            if (parsed.validate) {
+                val type = checkNotNull(cacheAccessor.getMessage(parsed.name, parsed.scenario)) { "No scenario ${parsed.scenario} for message: ${parsed.name}" }
+                parsed.metrics.onValidated()
+                validator.get().validate(parsed.message, type, adaptiveValidation?.level ?: ValidationLevel.FULL)
+            } else {
+                parsed.metrics.onValidationSkipped()
             }
+        } catch (e: TestExceptionImpl) {
+            parsed.failure = e
+        } catch (e: Exception) {
+            logger.error(e) { "Failed to validate decoded message" }
+            parsed.validationError = e
+        }
+
+        parsed.latency += parsed.metrics.record(ORCHESTRA_VALIDATION, time) - time
+    }
+
+    /**
+     * Validates the messages of each type and scenario with a single pass of the validator over their fields
+     */
+    private fun validateBatches(messages: List<ParsedMessage>) {
+        val level = adaptiveValidation?.level ?: ValidationLevel.FULL
+
+        messages.groupBy { it.name to it.scenario }.forEach { (key, group) ->
+            val (name, scenario) = key
+            val time = System.nanoTime()
+            val batch = group.filter { it.validate }
 
             try {
-                val scenario = metadata.getPropertiesOrDefault(SCENARIO_PROPERTY, settings.defaultScenario)
-                val type = checkNotNull(cacheAccessor.getMessage(structure.name, scenario)) { "No scenario $scenario for message: ${structure.name}" }
-                validator.validate(quickfixMessage, type)
-            } catch (e: TestExceptionImpl) {
-                throw ValidateException("msgType [${e.msgType}], tags [${e.tags.joinToString()}], scenario [${e.scenario}]", e.details)
+                if (batch.isNotEmpty()) {
+                    val type = checkNotNull(cacheAccessor.getMessage(name, scenario)) { "No scenario $scenario for message: $name" }
+                    batch.forEach { it.metrics.onValidated() }
+                    validator.get().validateBatch(batch.map(ParsedMessage::message), type, level).forEachIndexed { index, failure ->
+                        batch[index].failure = failure
+                    }
+                }
             } catch (e: Exception) {
-                logger.error(e) { "Failed to validate decoded message" }
-                errors += "Decoded message validation error: ${e.message}"
+                logger.error(e) { "Failed to validate decoded messages" }
+                batch.forEach { it.validationError = e }
             }
 
-            val result = structure.decode(quickfixMessage).apply { errors += this.errors }.message
+            // each message is accounted for its share of the time spent on the batch
+            val share = (System.nanoTime() - time) / group.size
 
-            if(errors.hasErrors) {
-                error("Failed to decode message due to following errors:\n${errors.joinToString("\n") { " - $it" }}")
+            group.forEach {
+                if (!it.validate) it.metrics.onValidationSkipped()
+                it.metrics.record(ORCHESTRA_VALIDATION, System.nanoTime() - share)
+                it.latency += share
             }
+        }
+    }
 
-            builder += result.apply {
-                if(raw.hasParentEventId()) parentEventId = raw.parentEventId
-                metadataBuilder.apply {
-                    putAllProperties(metadata.propertiesMap)
-                    this.id = metadata.id
-                    this.timestamp = metadata.timestamp
-                    this.protocol = PROTOCOL
-                }
+    private fun completeBatch(batch: MutableList<ParsedMessage>, builder: MessageGroup.Builder, context: IReportingContext) {
+        validateBatches(batch)
+        batch.forEach { builder.setMessages(it.index, AnyMessage.newBuilder().setMessage(complete(it, context))) }
+        batch.clear()
+    }
+
+    private fun complete(parsed: ParsedMessage, context: IReportingContext): Message.Builder {
+        val messageMetrics = parsed.metrics
+        val errors = createErrorHolder(parsed.raw, context, messageMetrics)
+
+        parsed.failure?.let { e ->
+            messageMetrics.onFailure()
+            e.tags.forEach(messageMetrics::onValidationError)
+            throw ValidateException("msgType [${e.msgType}], tags [${e.tags.joinToString()}], scenario [${e.scenario}]", e.details)
+        }
+
+        parsed.validationError?.let { errors += "Decoded message validation error: ${it.message}" }
+
+        val start = System.nanoTime()
+        val result = parsed.decoder.decode(parsed.message).apply { errors += this.errors }.message
+        var time = messageMetrics.record(STRUCTURE_DECODE, start)
+
+        if(errors.hasErrors) {
+            messageMetrics.onFailure()
+            error("Failed to decode message due to following errors:\n${errors.joinToString("\n") { " - $it" }}")
+        }
+
+        val builder = result.withMetadataOf(parsed.raw).apply {
+            parsed.inferred?.let { inferred ->
+                metadataBuilder.putProperties(SCENARIO_PROPERTY, inferred.scenario)
+                metadataBuilder.putProperties(SCENARIO_CANDIDATES_PROPERTY, inferred.candidates.toString())
             }
         }
+        time = messageMetrics.record(OUTPUT_BUILD, time)
 
-        return builder.build()
+        adaptiveValidation?.record(parsed.latency + time - start)?.let { change ->
+            metrics.onValidationLevel(change.to)
+            context.warning(change.toString())
+        }
+
+        return builder
+    }
+
+    /**
+     * Decodes the message with a streamed group, returns `null` if the message has to be decoded by the regular path
+     */
+    private fun decodeStreamed(raw: RawMessage, context: IReportingContext, decoder: StreamingDecoder, start: Long): Message.Builder? {
+        val structure = decoder.structure
+        val scenario = raw.metadata.getPropertiesOrDefault(SCENARIO_PROPERTY, settings.defaultScenario)
+        val messageMetrics = metrics[DECODE, structure.name, scenario]
+        val validate = samplersByType[structure.type]?.shouldValidate() != false
+        val type = if (validate) checkNotNull(cacheAccessor.getMessage(structure.name, scenario)) { "No scenario $scenario for message: ${structure.name}" } else null
+        val level = adaptiveValidation?.level ?: ValidationLevel.FULL
+
+        val decoded = try {
+            decoder.decode(raw.body, type?.let { { message -> validator.get().begin(message, it, level, decoder.groupTag) } })
+        } catch (e: TestExceptionImpl) {
+            messageMetrics.onMessage()
+            messageMetrics.onValidated()
+            messageMetrics.onFailure()
+            e.tags.forEach(messageMetrics::onValidationError)
+            throw ValidateException("msgType [${e.msgType}], tags [${e.tags.joinToString()}], scenario [${e.scenario}]", e.details)
+        } ?: return null
+
+        messageMetrics.onMessage()
+        if (validate) messageMetrics.onValidated() else messageMetrics.onValidationSkipped()
+        var time = messageMetrics.record(STRUCTURE_DECODE, start)
+        val errors = createErrorHolder(raw, context, messageMetrics)
+
+        decoded.validationError?.let {
+            logger.error(it) { "Failed to validate decoded message" }
+            errors += "Decoded message validation error: ${it.message}"
+        }
+
+        errors += decoded.errors
+
+        if(errors.hasErrors) {
+            messageMetrics.onFailure()
+            error("Failed to decode message due to following errors:\n${errors.joinToString("\n") { " - $it" }}")
+        }
+
+        return decoded.message.withMetadataOf(raw).also {
+            time = messageMetrics.record(OUTPUT_BUILD, time)
+
+            adaptiveValidation?.record(time - start)?.let { change ->
+                metrics.onValidationLevel(change.to)
+                context.warning(change.toString())
+            }
+        }
+    }
+
+    override fun close() {
+        metrics.close()
+    }
+
+    internal fun matchesApplVerId(value: String): Boolean = value == applVerId || value == applVerIdName
+
+    /**
+     * Returns the header fields of the raw message or `null` if the header cannot be scanned
+     */
+    internal fun scanHeader(body: ByteString): QuickfixHeader? = headerScanner?.scan(body)
+
+    private fun createErrorHolder(raw: RawMessage, context: IReportingContext, metrics: MessageMetrics): ErrorHolder = when {
+        settings.encodeErrorAsWaring && raw.wasSentByTh2 -> DummyHolder(metrics)
+        settings.decodeErrorAsWaring -> ContextHolder(context, metrics)
+        else -> ListHolder()
+    }
+
+    /**
+     * Message of the regular decoding path between its parsing and decoding
+     */
+    private class ParsedMessage(
+        val raw: RawMessage,
+        val message: QuickfixMessage,
+        val name: String,
+        val scenario: String,
+        val inferred: InferredScenario?,
+        val decoder: TieredDecoder,
+        val validate: Boolean,
+        val metrics: MessageMetrics,
+        // nanoseconds spent on the message so far, excluding the time spent on the other messages of its group
+        var latency: Long,
+    ) {
+        var index: Int = -1
+        var failure: TestExceptionImpl? = null
+        var validationError: Exception? = null
     }
 
     private interface ErrorHolder : Iterable<String> {
@@ -209,12 +532,14 @@ class FixOrchestraCodec(
         val hasErrors: Boolean
     }
 
-    private class DummyHolder : ErrorHolder {
+    private class DummyHolder(private val metrics: MessageMetrics) : ErrorHolder {
         override fun plusAssign(message: String) {
+            metrics.onWarnings(1)
             LOGGER.warn { "A waring was reported: $message" }
         }
 
         override fun plusAssign(messages: Collection<String>) {
+            metrics.onWarnings(messages.size)
             LOGGER.warn { "${messages.size} warning(s) were reported: ${messages.joinToString("; ")}" }
         }
 
@@ -239,10 +564,19 @@ class FixOrchestraCodec(
         override fun iterator(): Iterator<String> = _errors.iterator()
     }
 
-    private class ContextHolder(private val context: IReportingContext) : ErrorHolder {
-        override fun plusAssign(message: String): Unit = context.warning(message)
+    private class ContextHolder(
+        private val context: IReportingContext,
+        private val metrics: MessageMetrics,
+    ) : ErrorHolder {
+        override fun plusAssign(message: String) {
+            metrics.onWarnings(1)
+            context.warning(message)
+        }
 
-        override fun plusAssign(messages: Collection<String>): Unit = context.warnings(messages)
+        override fun plusAssign(messages: Collection<String>) {
+            metrics.onWarnings(messages.size)
+            context.warnings(messages)
+        }
 
         override val hasErrors: Boolean
             get() = false
@@ -251,10 +585,27 @@ class FixOrchestraCodec(
     }
 
     companion object {
-        private const val SCENARIO_PROPERTY = "th2.codec.orchestra.scenario"
+        const val SCENARIO_PROPERTY = "th2.codec.orchestra.scenario"
+        const val HEADER_ONLY_PROPERTY = "th2.codec.orchestra.header-only"
+        const val HEADER_ONLY_ALL = "*"
+        const val DICTIONARY_PROPERTY = "th2.codec.orchestra.dictionary"
+        const val SCENARIO_CANDIDATES_PROPERTY = "th2.codec.orchestra.scenario-candidates"
+        // the alias of the dictionary of the codec created without the dictionaries setting
+        internal const val MAIN_DICTIONARY = "main"
+        internal const val APPL_VER_ID_FIELD = "ApplVerID"
         private val LOGGER = KotlinLogging.logger { }
 
         private val RawMessage.wasSentByTh2: Boolean
             get() = hasParentEventId() && direction == Direction.SECOND
+
+        private fun Message.Builder.withMetadataOf(raw: RawMessage): Message.Builder = apply {
+            if(raw.hasParentEventId()) parentEventId = raw.parentEventId
+            metadataBuilder.apply {
+                putAllProperties(raw.metadata.propertiesMap)
+                this.id = raw.metadata.id
+                this.timestamp = raw.metadata.timestamp
+                this.protocol = PROTOCOL
+            }
+        }
     }
 }
@@ -16,21 +16,27 @@
 
 package com.exactpro.th2.codec.fix.orchestra
 
+import com.exactpro.th2.codec.api.IPipelineCodec
 import com.exactpro.th2.codec.api.IPipelineCodecContext
 import com.exactpro.th2.codec.api.IPipelineCodecFactory
 import com.exactpro.th2.codec.api.IPipelineCodecSettings
+import com.exactpro.th2.codec.fix.orchestra.util.FixFieldPool
 import com.exactpro.th2.codec.fix.orchestra.util.loadRepository
 import com.exactpro.th2.common.schema.dictionary.DictionaryType
 import io.fixprotocol._2020.orchestra.repository.Repository
 import mu.KotlinLogging
 import quickfix.DataDictionary
 import java.io.File
+import java.io.InputStream
 import java.nio.file.Files
+import java.util.concurrent.ConcurrentHashMap
 
 class FixOrchestraCodecFactory : IPipelineCodecFactory {
     private lateinit var qfjDictionaryPath: File
-    private lateinit var dictionary: DataDictionary
-    private lateinit var repository: Repository
+    private lateinit var context: IPipelineCodecContext
+    private lateinit var main: Dictionary
+    // dictionaries referenced by aliases in settings, they are loaded once and shared by all codecs of the factory
+    private val dictionaries = ConcurrentHashMap<String, Dictionary>()
 
     override val settingsClass: Class<out IPipelineCodecSettings> = FixOrchestraCodecSettings::class.java
     override val protocol: String
@@ -38,16 +44,29 @@ class FixOrchestraCodecFactory : IPipelineCodecFactory {
     override val protocols: Set<String> = setOf(PROTOCOL)
 
     override fun init(context: IPipelineCodecContext) {
+        this.context = context
         qfjDictionaryPath = Files.createTempDirectory("qfj-dictionary").toFile()
-        dictionary = context[DictionaryType.MAIN].use { QfjDictionaryLoader.load(it, qfjDictionaryPath) }.inputStream().use(::DataDictionary)
-        repository = context[DictionaryType.MAIN].loadRepository()
+        main = load(qfjDictionaryPath) { context[DictionaryType.MAIN] }
     }
 
-    override fun create(settings: IPipelineCodecSettings?) = FixOrchestraCodec(
-        requireNotNull(settings as? FixOrchestraCodecSettings) { "settings are not an instance of ${FixOrchestraCodecSettings::class.qualifiedName}" },
-        dictionary,
-        repository
-    )
+    override fun create(settings: IPipelineCodecSettings?): IPipelineCodec {
+        val codecSettings = requireNotNull(settings as? FixOrchestraCodecSettings) { "settings are not an instance of ${FixOrchestraCodecSettings::class.qualifiedName}" }
+
+        if (codecSettings.dictionaries.isEmpty()) {
+            return FixOrchestraCodec(codecSettings, main.dictionary, main.repository)
+        }
+
+        // components which are the same in several repositories are compiled once
+        val pool = FixFieldPool()
+
+        return FixOrchestraRoutingCodec(codecSettings.dictionaries.associateWith { alias ->
+            val dictionary = dictionaries.computeIfAbsent(alias) {
+                LOGGER.info { "Loading dictionary: $alias" }
+                load(qfjDictionaryPath.resolve(alias)) { context[alias] }
+            }
+            FixOrchestraCodec(codecSettings, dictionary.dictionary, dictionary.repository, pool, alias)
+        })
+    }
 
     override fun close() {
         if (::qfjDictionaryPath.isInitialized) {
@@ -57,8 +76,19 @@ class FixOrchestraCodecFactory : IPipelineCodecFactory {
         }
     }
 
+    private class Dictionary(val dictionary: DataDictionary, val repository: Repository)
+
     companion object {
         const val PROTOCOL = "FIX"
         private val LOGGER = KotlinLogging.logger { }
+
+        /**
+         * Loads the repository and the QFJ dictionary generated from it in the [directory]
+         */
+        private fun load(directory: File, source: () -> InputStream): Dictionary {
+            directory.mkdirs()
+            val dictionary = source().use { QfjDictionaryLoader.load(it, directory) }.inputStream().use(::DataDictionary)
+            return Dictionary(dictionary, source().use { it.loadRepository() })
+        }
     }
-}
\ No newline at end of file
+}
@@ -17,6 +17,7 @@
 package com.exactpro.th2.codec.fix.orchestra
 
 import com.exactpro.th2.codec.api.IPipelineCodecSettings
+import com.exactpro.th2.codec.fix.orchestra.validator.ValidationLevel
 
 data class FixOrchestraCodecSettings(
     val defaultScenario: String = "base",
@@ -24,4 +25,58 @@ data class FixOrchestraCodecSettings(
     val decodeErrorAsWaring: Boolean = false,
     val inlineComponents: Boolean = false,
     val cacheSize: Int = 500,
-) : IPipelineCodecSettings
\ No newline at end of file
+    val decoderCompileThreshold: Int = -1,
+    val encoderCompileThreshold: Int = -1,
+    val projections: Map<String, List<Projection>> = emptyMap(),
+    val headerOnly: Set<String> = emptySet(),
+    val validationPolicies: Map<String, ValidationPolicy> = emptyMap(),
+    val adaptiveValidation: AdaptiveValidationSettings? = null,
+    val sessionMessages: Set<String> = emptySet(),
+    val internedFields: Set<String> = emptySet(),
+    val internTableSize: Int = 1024,
+    val streamedGroups: Map<String, String> = emptyMap(),
+    val offHeapFieldTable: Boolean = false,
+    val dictionaries: List<String> = emptyList(),
+    val inferScenario: Boolean = false,
+    val batchValidation: Boolean = false,
+) : IPipelineCodecSettings
+
+/**
+ * Limits the decoded body of a message to the [fields]: names or dot-separated paths of fields, components and groups
+ * as they appear in the decoded message. The projection is applied to the [scenario] only if it is set,
+ * otherwise to all scenarios without their own projection. [validate] disables the Orchestra validation of projected messages
+ */
+data class Projection(
+    val fields: Set<String>,
+    val scenario: String? = null,
+    val validate: Boolean = true,
+)
+/**
+ * Defines which decoded messages are validated with the Orchestra rules:
+ * all of them, none, every [sampleRate]-th message or the first message in every [intervalMillis]
+ */
+data class ValidationPolicy(
+    val mode: ValidationMode = ValidationMode.ALWAYS,
+    val sampleRate: Int = 1,
+    val intervalMillis: Long = 1000,
+)
+
+enum class ValidationMode {
+    ALWAYS,
+    NEVER,
+    SAMPLE,
+    INTERVAL,
+}
+
+/**
+ * Lowers the validation level of decoded messages down to [lowestLevel] while the average decode time exceeds [latencySloMicros]
+ * and restores it when the average drops below [restoreRatio] of the SLO. [smoothing] is the weight of the latest message in the average,
+ * [holdMillis] is the minimal time between two changes of the level
+ */
+data class AdaptiveValidationSettings(
+    val latencySloMicros: Long,
+    val restoreRatio: Double = 0.5,
+    val smoothing: Double = 0.05,
+    val holdMillis: Long = 1000,
+    val lowestLevel: ValidationLevel = ValidationLevel.NO_CODESETS,
+)
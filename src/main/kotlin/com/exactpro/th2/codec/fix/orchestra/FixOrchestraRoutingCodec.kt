@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra
+
+import com.exactpro.th2.codec.api.IPipelineCodec
+import com.exactpro.th2.codec.api.IReportingContext
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodec.Companion.APPL_VER_ID_FIELD
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodec.Companion.DICTIONARY_PROPERTY
+import com.exactpro.th2.codec.fix.orchestra.util.HEADER_FIELD
+import com.exactpro.th2.codec.fix.orchestra.util.peekPrefix
+import com.exactpro.th2.common.grpc.AnyMessage
+import com.exactpro.th2.common.grpc.MessageGroup
+import quickfix.field.ApplVerID
+import quickfix.field.BeginString
+
+/**
+ * Codec of several dictionaries which routes every message to the codec of its dictionary by [codecs] aliases.
+ * The dictionary is selected by the [DICTIONARY_PROPERTY] of the message if it is set, otherwise by BeginString and ApplVerID
+ * of the message. The first codec takes the messages which select none. Consecutive messages routed to the same codec
+ * are processed as one group
+ */
+class FixOrchestraRoutingCodec(private val codecs: Map<String, FixOrchestraCodec>) : IPipelineCodec {
+    private val default = requireNotNull(codecs.values.firstOrNull()) { "No codecs to route messages to" }
+    private val codecsByBeginString = codecs.values.groupBy(FixOrchestraCodec::beginString)
+
+    override fun encode(messageGroup: MessageGroup): MessageGroup = throw UnsupportedOperationException("use encode with context instead")
+
+    override fun encode(messageGroup: MessageGroup, context: IReportingContext): MessageGroup {
+        return route(messageGroup, ::selectEncoder) { codec, group -> codec.encode(group, context) }
+    }
+
+    override fun decode(messageGroup: MessageGroup): MessageGroup = throw UnsupportedOperationException("use decode with context instead")
+
+    override fun decode(messageGroup: MessageGroup, context: IReportingContext): MessageGroup {
+        return route(messageGroup, ::selectDecoder) { codec, group -> codec.decode(group, context) }
+    }
+
+    override fun close() {
+        codecs.values.forEach(FixOrchestraCodec::close)
+    }
+
+    private fun selectEncoder(message: AnyMessage): FixOrchestraCodec {
+        if (!message.hasMessage()) return default
+        val parsed = message.message
+        parsed.metadata.propertiesMap[DICTIONARY_PROPERTY]?.let { return getCodec(it) }
+        val header = parsed.fieldsMap[HEADER_FIELD]?.messageValue ?: return default
+        return select(header.fieldsMap[BEGIN_STRING_FIELD]?.simpleValue) { header.fieldsMap[APPL_VER_ID_FIELD]?.simpleValue }
+    }
+
+    private fun selectDecoder(message: AnyMessage): FixOrchestraCodec {
+        if (!message.hasRawMessage()) return default
+        val raw = message.rawMessage
+        raw.metadata.propertiesMap[DICTIONARY_PROPERTY]?.let { return getCodec(it) }
+        val prefix = raw.body.peekPrefix() ?: return default
+        return select(prefix.getString(BeginString.FIELD)) { codec ->
+            codec.scanHeader(raw.body)?.takeIf { it.isSetField(ApplVerID.FIELD) }?.getString(ApplVerID.FIELD)
+        }
+    }
+
+    /**
+     * Selects the codec by BeginString, ApplVerID is looked up only if several dictionaries share the BeginString
+     */
+    private inline fun select(beginString: String?, applVerId: (FixOrchestraCodec) -> String?): FixOrchestraCodec {
+        val candidates = beginString?.let(codecsByBeginString::get) ?: return default
+        if (candidates.size == 1) return candidates[0]
+        val version = applVerId(candidates[0]) ?: return candidates[0]
+        return candidates.firstOrNull { it.matchesApplVerId(version) } ?: candidates[0]
+    }
+
+    private fun getCodec(alias: String): FixOrchestraCodec = requireNotNull(codecs[alias]) { "Unknown dictionary: $alias" }
+
+    private inline fun route(
+        messageGroup: MessageGroup,
+        select: (AnyMessage) -> FixOrchestraCodec,
+        process: (FixOrchestraCodec, MessageGroup) -> MessageGroup,
+    ): MessageGroup {
+        val messages = messageGroup.messagesList
+
+        if (messages.isEmpty()) {
+            return messageGroup
+        }
+
+        val builder = MessageGroup.newBuilder()
+        var codec: FixOrchestraCodec? = null
+        var run = MessageGroup.newBuilder()
+
+        for (message in messages) {
+            val selected = select(message)
+
+            if (codec != null && selected !== codec) {
+                builder.addAllMessages(process(codec, run.build()).messagesList)
+                run = MessageGroup.newBuilder()
+            }
+
+            codec = selected
+            run.addMessages(message)
+        }
+
+        builder.addAllMessages(process(checkNotNull(codec), run.build()).messagesList)
+        return builder.build()
+    }
+
+    private companion object {
+        const val BEGIN_STRING_FIELD = "BeginString"
+    }
+}
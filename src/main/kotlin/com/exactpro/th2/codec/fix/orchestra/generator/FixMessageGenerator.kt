@@ -0,0 +1,246 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.generator
+
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodec.Companion.SCENARIO_PROPERTY
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodecFactory.Companion.PROTOCOL
+import com.exactpro.th2.codec.fix.orchestra.util.FixField
+import com.exactpro.th2.codec.fix.orchestra.util.FixMessage
+import com.exactpro.th2.codec.fix.orchestra.util.HEADER_FIELD
+import com.exactpro.th2.codec.fix.orchestra.util.beginString
+import com.exactpro.th2.codec.fix.orchestra.util.encode
+import com.exactpro.th2.codec.fix.orchestra.util.loadMessageStructure
+import com.exactpro.th2.common.grpc.ListValue
+import com.exactpro.th2.common.grpc.Message
+import com.exactpro.th2.common.grpc.RawMessage
+import com.exactpro.th2.common.message.messageType
+import com.exactpro.th2.common.message.set
+import com.google.protobuf.ByteString
+import io.fixprotocol._2020.orchestra.repository.Repository
+import mu.KotlinLogging
+import quickfix.field.MsgSeqNum
+import quickfix.field.SenderCompID
+import quickfix.field.SendingTime
+import quickfix.field.TargetCompID
+import java.time.LocalDateTime
+import java.time.format.DateTimeFormatter
+import kotlin.random.Random
+import kotlin.text.Charsets.UTF_8
+
+private val LOGGER = KotlinLogging.logger { }
+
+private const val DEFAULT_SCENARIO = "base"
+private const val INVALID_CODE = "~"
+private const val ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
+private val START_TIME: LocalDateTime = LocalDateTime.of(2022, 2, 14, 12, 0, 0)
+private val TIMESTAMP_FORMAT: DateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS")
+private val LOCAL_DATE_FORMAT: DateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMMdd")
+private val MONTH_YEAR_FORMAT: DateTimeFormatter = DateTimeFormatter.ofPattern("yyyyMM")
+private val SKIPPED_HEADER_TAGS = setOf(8, 9, 35)
+
+data class GeneratorSettings(
+    val seed: Long = 0,
+    val minGroupSize: Int = 1,
+    val maxGroupSize: Int = 3,
+    val maxGroupDepth: Int = 2,
+    val optionalFieldDensity: Double = 0.5,
+    val invalidRatio: Double = 0.0,
+    val inlineComponents: Boolean = false,
+    val senderCompID: String = "SENDER",
+    val targetCompID: String = "TARGET",
+) {
+    init {
+        require(minGroupSize in 0..maxGroupSize) { "minGroupSize must be in range 0..maxGroupSize: $minGroupSize" }
+        require(optionalFieldDensity in 0.0..1.0) { "optionalFieldDensity must be in range 0.0..1.0: $optionalFieldDensity" }
+        require(invalidRatio in 0.0..1.0) { "invalidRatio must be in range 0.0..1.0: $invalidRatio" }
+    }
+}
+
+class GeneratedMessage(
+    val name: String,
+    val scenario: String,
+    val message: Message,
+    val raw: String,
+    val isValid: Boolean,
+) {
+    fun toMessage(): Message = message.toBuilder().apply {
+        metadataBuilder.apply {
+            protocol = PROTOCOL
+            putProperties(SCENARIO_PROPERTY, scenario)
+        }
+    }.build()
+
+    fun toRawMessage(): RawMessage = RawMessage.newBuilder().apply {
+        body = ByteString.copyFrom(raw, UTF_8)
+        metadataBuilder.apply {
+            protocol = PROTOCOL
+            putProperties(SCENARIO_PROPERTY, scenario)
+        }
+    }.build()
+}
+
+/**
+ * Generates messages for every message type and scenario of the repository.
+ * The output depends only on the [settings] and the sequence of calls so the same seed produces the same messages.
+ * Required fields and fields with rules are always generated, optional ones are generated according to [GeneratorSettings.optionalFieldDensity].
+ * Invalid messages miss a required field or have a value out of the field code set.
+ *
+ * The generator is not thread-safe
+ */
+class FixMessageGenerator(repository: Repository, private val settings: GeneratorSettings = GeneratorSettings()) {
+    private val random = Random(settings.seed)
+    private val beginString = repository.beginString
+    private var sequence = 0
+
+    private val structures: Map<String, Map<String, FixMessage>> = repository.messages.message
+        .groupBy { it.name }
+        .mapValues { (_, messages) ->
+            messages.mapNotNull { message ->
+                val scenario = message.scenario ?: DEFAULT_SCENARIO
+                runCatching { scenario to repository.loadMessageStructure(message, settings.inlineComponents) }
+                    .onFailure { LOGGER.warn(it) { "Skipping scenario $scenario of message ${message.name}" } }
+                    .getOrNull()
+            }.toMap()
+        }
+
+    private val candidates: List<Pair<String, String>> = structures.flatMap { (name, scenarios) -> scenarios.keys.map { name to it } }
+
+    val messageNames: Set<String>
+        get() = structures.keys
+
+    fun scenarios(name: String): Set<String> = structures[name]?.keys ?: emptySet()
+
+    /**
+     * Generates a message of random type and scenario
+     */
+    fun generate(): GeneratedMessage = candidates[random.nextInt(candidates.size)].let { (name, scenario) -> generate(name, scenario) }
+
+    fun generate(name: String, scenario: String = DEFAULT_SCENARIO): GeneratedMessage {
+        val structure = requireNotNull(structures[name]?.get(scenario)) { "Unknown message $name with scenario $scenario" }
+        val sequence = ++sequence
+
+        val message = Message.newBuilder().apply {
+            structure.body.generateTo(this, 0, false)
+            this[HEADER_FIELD] = Message.newBuilder().apply { structure.header.generateHeaderTo(this, sequence) }
+            messageType = name
+        }
+
+        val (encoded, errors) = structure.encode(message.build(), beginString)
+        check(errors.isEmpty()) { "Generated message $name with scenario $scenario cannot be encoded: $errors" }
+
+        var isValid = true
+
+        if (random.nextDouble() < settings.invalidRatio) {
+            val required = structure.body.values.filter { it.isField && it.isRequired && message.containsFields(it.name) }
+            val enums = structure.body.values.filter { it.isField && it.isEnum && message.containsFields(it.name) }
+
+            when {
+                required.isNotEmpty() && (enums.isEmpty() || random.nextBoolean()) -> {
+                    val field = required[random.nextInt(required.size)]
+                    message.removeFields(field.name)
+                    encoded.removeField(field.tag)
+                    isValid = false
+                }
+                enums.isNotEmpty() -> {
+                    val field = enums[random.nextInt(enums.size)]
+                    message[field.name] = INVALID_CODE
+                    encoded.setString(field.tag, INVALID_CODE)
+                    isValid = false
+                }
+            }
+        }
+
+        return GeneratedMessage(name, scenario, message.build(), encoded.toString(), isValid)
+    }
+
+    fun generate(count: Int): List<GeneratedMessage> = List(count) { generate() }
+
+    private fun Map<String, FixField>.generateHeaderTo(target: Message.Builder, sequence: Int) {
+        for ((name, field) in this) {
+            if (!field.isField || field.tag in SKIPPED_HEADER_TAGS) continue
+
+            when (field.tag) {
+                SenderCompID.FIELD -> target[name] = settings.senderCompID
+                TargetCompID.FIELD -> target[name] = settings.targetCompID
+                MsgSeqNum.FIELD -> target[name] = sequence
+                SendingTime.FIELD -> target[name] = TIMESTAMP_FORMAT.format(START_TIME.plusNanos(sequence * 1_001_000_000L))
+                else -> if (field.isRequired) field.generateValue()?.let { target[name] = it }
+            }
+        }
+    }
+
+    /**
+     * Generates fields into the [target].
+     * The first field is always generated if [forceFirst] is set because it is a delimiter of a group entry
+     */
+    private fun Map<String, FixField>.generateTo(target: Message.Builder, depth: Int, forceFirst: Boolean) {
+        var force = forceFirst
+
+        for ((name, field) in this) {
+            val isForced = force
+            force = false
+
+            if (field.isForbidden) continue
+            if (!isForced && !field.isRequired && !field.hasRules && random.nextDouble() >= settings.optionalFieldDensity) continue
+
+            when {
+                field.isField -> field.generateValue()?.let { target[name] = it }
+                field.isComponent -> {
+                    val component = Message.newBuilder()
+                    field.fields.generateTo(component, depth, isForced)
+                    if (component.fieldsCount > 0) target[name] = component
+                }
+                field.isGroup -> {
+                    if (!isForced && !field.isRequired && depth >= settings.maxGroupDepth) continue
+                    val minSize = if (isForced || field.isRequired) maxOf(settings.minGroupSize, 1) else settings.minGroupSize
+                    val size = random.nextInt(minSize, maxOf(minSize, settings.maxGroupSize) + 1)
+                    if (size == 0) continue
+                    target[name] = ListValue.newBuilder().apply {
+                        repeat(size) {
+                            field.fields.generateTo(addValuesBuilder().messageValueBuilder, depth + 1, true)
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private fun FixField.generateValue(): String? {
+        if (isEnum) {
+            return values.keys.elementAt(random.nextInt(values.size))
+        }
+
+        return when (type) {
+            "data", "XMLData" -> null
+            "Boolean" -> random.nextBoolean().toString()
+            "char" -> ALPHABET[random.nextInt(26)].toString()
+            "int", "Length", "NumInGroup", "SeqNum", "TagNum" -> random.nextInt(1, 1_000).toString()
+            "DayOfMonth" -> random.nextInt(1, 32).toString()
+            "float", "Amt", "Price", "PriceOffset", "Qty", "Percentage" -> "${random.nextInt(1, 10_000)}.${random.nextInt(10, 100)}"
+            "UTCTimestamp" -> TIMESTAMP_FORMAT.format(randomTime())
+            "UTCTimeOnly" -> randomTime().toLocalTime().withNano(random.nextInt(1, 1_000) * 1_000_000).toString()
+            "UTCDateOnly" -> randomTime().toLocalDate().toString()
+            "LocalMktDate" -> LOCAL_DATE_FORMAT.format(randomTime())
+            "MonthYear" -> MONTH_YEAR_FORMAT.format(randomTime())
+            else -> String(CharArray(random.nextInt(1, 13)) { ALPHABET[random.nextInt(ALPHABET.length)] })
+        }
+    }
+
+    private fun randomTime(): LocalDateTime = START_TIME
+        .plusSeconds(random.nextLong(0, 86_400))
+        .plusNanos(random.nextInt(1, 1_000) * 1_000_000L)
+}
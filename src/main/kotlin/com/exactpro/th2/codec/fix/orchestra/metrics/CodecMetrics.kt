@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.metrics
+
+import com.exactpro.th2.codec.fix.orchestra.validator.ValidationLevel
+import io.prometheus.client.Counter
+import io.prometheus.client.Gauge
+import io.prometheus.client.Histogram
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+private const val NANOS_IN_SECOND = 1_000_000_000.0
+
+private const val OPERATION_LABEL = "operation"
+private const val PHASE_LABEL = "phase"
+private const val MESSAGE_TYPE_LABEL = "message_type"
+private const val SCENARIO_LABEL = "scenario"
+private const val TAG_LABEL = "tag"
+private const val OUTCOME_LABEL = "outcome"
+private const val CODEC_LABEL = "codec"
+private const val DICTIONARY_LABEL = "dictionary"
+
+private val PHASE_DURATION: Histogram = Histogram.build()
+    .name("th2_codec_fix_orchestra_phase_duration_seconds")
+    .help("Time spent in a single processing phase of a message")
+    .labelNames(OPERATION_LABEL, PHASE_LABEL, MESSAGE_TYPE_LABEL, SCENARIO_LABEL)
+    .exponentialBuckets(0.000_005, 2.0, 16)
+    .register()
+
+private val MESSAGES: Counter = Counter.build()
+    .name("th2_codec_fix_orchestra_messages_total")
+    .help("Number of processed messages")
+    .labelNames(OPERATION_LABEL, MESSAGE_TYPE_LABEL, SCENARIO_LABEL)
+    .register()
+
+private val FAILURES: Counter = Counter.build()
+    .name("th2_codec_fix_orchestra_failures_total")
+    .help("Number of messages which failed to be processed")
+    .labelNames(OPERATION_LABEL, MESSAGE_TYPE_LABEL, SCENARIO_LABEL)
+    .register()
+
+private val VALIDATION_ERRORS: Counter = Counter.build()
+    .name("th2_codec_fix_orchestra_validation_errors_total")
+    .help("Number of FIX Orchestra validation errors per tag")
+    .labelNames(OPERATION_LABEL, MESSAGE_TYPE_LABEL, SCENARIO_LABEL, TAG_LABEL)
+    .register()
+
+private val WARNINGS: Counter = Counter.build()
+    .name("th2_codec_fix_orchestra_warnings_total")
+    .help("Number of errors reported as warnings")
+    .labelNames(OPERATION_LABEL, MESSAGE_TYPE_LABEL, SCENARIO_LABEL)
+    .register()
+
+private val VALIDATIONS: Counter = Counter.build()
+    .name("th2_codec_fix_orchestra_validations_total")
+    .help("Number of messages validated or skipped by the validation policy")
+    .labelNames(OPERATION_LABEL, MESSAGE_TYPE_LABEL, SCENARIO_LABEL, OUTCOME_LABEL)
+    .register()
+
+private val VALIDATION_LEVEL: Gauge = Gauge.build()
+    .name("th2_codec_fix_orchestra_validation_level")
+    .help("Current level of the adaptive validation: 0 - full, 1 - no rules, 2 - no code sets")
+    .labelNames(CODEC_LABEL, DICTIONARY_LABEL)
+    .register()
+
+private val CODEC_INSTANCES = AtomicInteger()
+
+enum class Phase(val label: String) {
+    PARSE("parse"),
+    ORCHESTRA_VALIDATION("orchestra_validation"),
+    QFJ_VALIDATION("qfj_validation"),
+    STRUCTURE_DECODE("structure_decode"),
+    STRUCTURE_ENCODE("structure_encode"),
+    OUTPUT_BUILD("output_build"),
+}
+
+enum class Operation(val label: String, val phases: Set<Phase>) {
+    ENCODE("encode", setOf(Phase.STRUCTURE_ENCODE, Phase.ORCHESTRA_VALIDATION, Phase.QFJ_VALIDATION, Phase.OUTPUT_BUILD)),
+    DECODE("decode", setOf(Phase.PARSE, Phase.ORCHESTRA_VALIDATION, Phase.STRUCTURE_DECODE, Phase.OUTPUT_BUILD)),
+}
+
+/**
+ * Metrics of a single operation for a single message type and scenario.
+ * All label children are bound once on creation so recording does not allocate
+ */
+class MessageMetrics(operation: Operation, messageType: String, scenario: String) {
+    private val labels = arrayOf(operation.label, messageType, scenario)
+    private val durations = arrayOfNulls<Histogram.Child>(PHASES.size).apply {
+        operation.phases.forEach { this[it.ordinal] = PHASE_DURATION.labels(operation.label, it.label, messageType, scenario) }
+    }
+    private val messages = MESSAGES.labels(*labels)
+    private val failures = FAILURES.labels(*labels)
+    private val warnings = WARNINGS.labels(*labels)
+    private val validated = VALIDATIONS.labels(*labels, "validated")
+    private val skipped = VALIDATIONS.labels(*labels, "skipped")
+    private val validationErrors = ConcurrentHashMap<Int, Counter.Child>()
+
+    /**
+     * Records time passed since [start] for the [phase] and returns the current [System.nanoTime]
+     * so it can be used as a start of the next phase
+     */
+    fun record(phase: Phase, start: Long): Long = System.nanoTime().also { now ->
+        durations[phase.ordinal]?.observe((now - start) / NANOS_IN_SECOND)
+    }
+
+    fun onMessage(): Unit = messages.inc()
+
+    fun onFailure(): Unit = failures.inc()
+
+    fun onWarnings(count: Int): Unit = warnings.inc(count.toDouble())
+
+    fun onValidated(): Unit = validated.inc()
+
+    fun onValidationSkipped(): Unit = skipped.inc()
+
+    fun onValidationError(tag: Int): Unit = (validationErrors[tag] ?: validationErrors.computeIfAbsent(tag) {
+        VALIDATION_ERRORS.labels(*labels, it.toString())
+    }).inc()
+
+    companion object {
+        private val PHASES = Phase.values()
+    }
+}
+
+/**
+ * Holds [MessageMetrics] for each operation, message type and scenario.
+ * Lookups of already known combinations do not allocate.
+ * The state of the codec is reported per codec instance of the [dictionary], so codecs in one process do not overwrite each other
+ */
+class CodecMetrics(dictionary: String) : AutoCloseable {
+    private val metrics = Array(Operation.values().size) { ConcurrentHashMap<String, ConcurrentHashMap<String, MessageMetrics>>() }
+    private val codecLabels = arrayOf(CODEC_INSTANCES.incrementAndGet().toString(), dictionary)
+    private val validationLevel = VALIDATION_LEVEL.labels(*codecLabels)
+
+    fun onValidationLevel(level: ValidationLevel): Unit = validationLevel.set(level.ordinal.toDouble())
+
+    override fun close(): Unit = VALIDATION_LEVEL.remove(*codecLabels)
+
+    operator fun get(operation: Operation, messageType: String, scenario: String): MessageMetrics {
+        val byType = metrics[operation.ordinal]
+        val byScenario = byType[messageType] ?: byType.computeIfAbsent(messageType) { ConcurrentHashMap() }
+        return byScenario[scenario] ?: byScenario.computeIfAbsent(scenario) { MessageMetrics(operation, messageType, it) }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.replay
+
+import com.google.protobuf.ByteString
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.channels.FileChannel.MapMode.READ_ONLY
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption.READ
+import kotlin.text.Charsets.US_ASCII
+
+const val SOH: Byte = 1
+const val UNKNOWN_MSG_TYPE = "?"
+
+private const val INCOMPLETE = -1
+private const val MALFORMED = -2
+private const val MAX_WINDOW_SIZE = Int.MAX_VALUE.toLong()
+private const val CHECKSUM_LENGTH = 7 // 10=XXX<delimiter>
+private const val MAX_BODY_LENGTH_DIGITS = 9
+private const val MAX_BEGIN_STRING_LENGTH = 16
+
+/**
+ * Minimum size of a mapped window: the byte preceding the window, BeginString and BodyLength fields and the checksum field
+ */
+const val MIN_WINDOW_SIZE = 1L + (2 + MAX_BEGIN_STRING_LENGTH + 1) + (2 + MAX_BODY_LENGTH_DIGITS + 1) + CHECKSUM_LENGTH
+
+class FixFrame(val msgType: String, val body: ByteString)
+
+/**
+ * Reads FIX messages from a log file mapped into memory.
+ * Messages are framed by BeginString, BodyLength and CheckSum so any text between them (timestamps, directions, etc.) is skipped.
+ * Files larger than 2 GiB are mapped by consecutive windows of [windowSize] bytes overlapping by one byte,
+ * so the window size bounds the size of a message: a message longer than `windowSize - 1` bytes is counted in [malformedFrames]
+ */
+class FixLogReader(
+    private val path: Path,
+    private val delimiter: Byte = SOH,
+    private val windowSize: Long = MAX_WINDOW_SIZE,
+) {
+    /**
+     * Number of sequences which started as a message but could not be framed
+     */
+    var malformedFrames: Long = 0
+        private set
+
+    init {
+        require(windowSize in MIN_WINDOW_SIZE..MAX_WINDOW_SIZE) { "windowSize must be in range $MIN_WINDOW_SIZE..$MAX_WINDOW_SIZE: $windowSize" }
+    }
+
+    fun forEach(action: (FixFrame) -> Unit) = FileChannel.open(path, READ).use { channel ->
+        val size = channel.size()
+        var offset = 0L
+
+        while (offset < size) {
+            // the window starts one byte earlier to see whether a BeginString at the offset follows a digit
+            val mapped = if (offset > 0) offset - 1 else 0
+            val first = (offset - mapped).toInt()
+            val length = minOf(size - mapped, windowSize)
+            val buffer = channel.map(READ_ONLY, mapped, length)
+            val isLast = mapped + length == size
+            val limit = buffer.limit()
+            var position = first
+
+            while (true) {
+                val start = buffer.findBeginString(position)
+
+                if (start < 0) {
+                    // the last byte can start a BeginString completed by the next window
+                    position = maxOf(limit - 1, position)
+                    break
+                }
+
+                val end = buffer.findEnd(start)
+
+                if (end == INCOMPLETE && !isLast && start > first) {
+                    position = start
+                    break
+                }
+
+                if (end < 0) {
+                    malformedFrames++
+                    position = start + 2
+                    continue
+                }
+
+                action(FixFrame(buffer.readMsgType(start, end), buffer.copy(start, end)))
+                position = end
+            }
+
+            if (isLast) break
+            offset = maxOf(mapped + position, offset + 1)
+        }
+    }
+
+    private fun MappedByteBuffer.findBeginString(from: Int): Int {
+        for (index in from until limit() - 1) {
+            if (get(index) == '8'.code.toByte() && get(index + 1) == '='.code.toByte() && (index == 0 || !get(index - 1).isDigit())) {
+                return index
+            }
+        }
+
+        return -1
+    }
+
+    /**
+     * Returns the index after the checksum field of a message started at [start] or [INCOMPLETE]/[MALFORMED]
+     */
+    private fun MappedByteBuffer.findEnd(start: Int): Int {
+        val limit = limit()
+        var index = start + 2
+
+        while (index < limit && get(index) != delimiter) index++
+        if (index + 2 >= limit) return INCOMPLETE
+        index++
+        if (get(index) != '9'.code.toByte() || get(index + 1) != '='.code.toByte()) return MALFORMED
+        index += 2
+
+        var bodyLength = 0
+        val digitsStart = index
+
+        while (index < limit && get(index).isDigit()) {
+            if (index - digitsStart == MAX_BODY_LENGTH_DIGITS) return MALFORMED
+            bodyLength = bodyLength * 10 + (get(index) - '0'.code.toByte())
+            index++
+        }
+
+        if (index >= limit) return INCOMPLETE
+        if (index == digitsStart || get(index) != delimiter) return MALFORMED
+
+        val checksumStart = index + 1L + bodyLength
+        val end = checksumStart + CHECKSUM_LENGTH
+
+        if (end > limit) return INCOMPLETE
+
+        val checksum = checksumStart.toInt()
+
+        if (get(checksum) != '1'.code.toByte() || get(checksum + 1) != '0'.code.toByte() || get(checksum + 2) != '='.code.toByte() || get(checksum + 6) != delimiter) {
+            return MALFORMED
+        }
+
+        return end.toInt()
+    }
+
+    private fun MappedByteBuffer.readMsgType(start: Int, end: Int): String {
+        var index = start
+
+        while (index < end - 3) {
+            if (get(index) == delimiter && get(index + 1) == '3'.code.toByte() && get(index + 2) == '5'.code.toByte() && get(index + 3) == '='.code.toByte()) {
+                val valueStart = index + 4
+                var valueEnd = valueStart
+                while (valueEnd < end && get(valueEnd) != delimiter) valueEnd++
+                return String(ByteArray(valueEnd - valueStart) { get(valueStart + it) }, US_ASCII)
+            }
+            index++
+        }
+
+        return UNKNOWN_MSG_TYPE
+    }
+
+    private fun MappedByteBuffer.copy(start: Int, end: Int): ByteString {
+        if (delimiter == SOH) {
+            return ByteString.copyFrom(duplicate().apply { position(start).limit(end) })
+        }
+
+        val bytes = ByteArray(end - start) { get(start + it) }
+
+        for (index in bytes.indices) {
+            if (bytes[index] == delimiter) bytes[index] = SOH
+        }
+
+        return ByteString.copyFrom(bytes)
+    }
+
+    private fun Byte.isDigit(): Boolean = this >= '0'.code.toByte() && this <= '9'.code.toByte()
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:JvmName("Replay")
+
+package com.exactpro.th2.codec.fix.orchestra.replay
+
+import com.exactpro.th2.codec.api.DictionaryAlias
+import com.exactpro.th2.codec.api.IPipelineCodec
+import com.exactpro.th2.codec.api.IPipelineCodecContext
+import com.exactpro.th2.codec.api.impl.ReportingContext
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodecFactory
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodecFactory.Companion.PROTOCOL
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodecSettings
+import com.exactpro.th2.common.grpc.AnyMessage
+import com.exactpro.th2.common.grpc.MessageGroup
+import com.exactpro.th2.common.grpc.RawMessage
+import com.exactpro.th2.common.schema.dictionary.DictionaryType
+import mu.KotlinLogging
+import java.io.InputStream
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import kotlin.system.exitProcess
+
+private val LOGGER = KotlinLogging.logger { }
+
+private val END_OF_DATA = emptyList<FixFrame>()
+
+private const val USAGE = """Usage: replay --dictionary <orchestra.xml> [options] <log file>...
+Options:
+  --threads <n>            number of decoding threads (default: 1)
+  --batch-size <n>         number of messages in a decoded message group (default: 1)
+  --delimiter <char>       field delimiter used in the log files, SOH or a single character (default: SOH)
+  --scenario <name>        default scenario (default: base)
+  --inline-components      decode components inline
+  --errors-as-warnings     report decode errors as warnings instead of failing the batch
+  --cache-size <n>         size of the repository cache (default: 500)"""
+
+data class ReplayOptions(
+    val dictionary: Path,
+    val files: List<Path>,
+    val threads: Int = 1,
+    val batchSize: Int = 1,
+    val delimiter: Byte = SOH,
+    val settings: FixOrchestraCodecSettings = FixOrchestraCodecSettings(),
+) {
+    init {
+        require(files.isNotEmpty()) { "No log files" }
+        require(threads > 0) { "threads must be positive: $threads" }
+        require(batchSize > 0) { "batchSize must be positive: $batchSize" }
+        require(Files.isRegularFile(dictionary)) { "Dictionary does not exist: $dictionary" }
+        files.forEach { file -> require(Files.isRegularFile(file)) { "File does not exist: $file" } }
+    }
+
+    companion object {
+        fun parse(args: Array<String>): ReplayOptions {
+            var dictionary: Path? = null
+            val files = mutableListOf<Path>()
+            var threads = 1
+            var batchSize = 1
+            var delimiter = SOH
+            var settings = FixOrchestraCodecSettings()
+
+            val iterator = args.iterator()
+
+            fun value(option: String): String {
+                require(iterator.hasNext()) { "No value for option: $option" }
+                return iterator.next()
+            }
+
+            fun intValue(option: String): Int = value(option).let { requireNotNull(it.toIntOrNull()) { "Invalid value of option $option: $it" } }
+
+            while (iterator.hasNext()) {
+                when (val arg = iterator.next()) {
+                    "--dictionary" -> dictionary = Paths.get(value(arg))
+                    "--threads" -> threads = intValue(arg)
+                    "--batch-size" -> batchSize = intValue(arg)
+                    "--delimiter" -> delimiter = value(arg).let {
+                        when {
+                            it == "SOH" -> SOH
+                            it.length == 1 -> it[0].code.toByte()
+                            else -> throw IllegalArgumentException("Invalid delimiter: $it")
+                        }
+                    }
+                    "--scenario" -> settings = settings.copy(defaultScenario = value(arg))
+                    "--inline-components" -> settings = settings.copy(inlineComponents = true)
+                    "--errors-as-warnings" -> settings = settings.copy(decodeErrorAsWaring = true)
+                    "--cache-size" -> settings = settings.copy(cacheSize = intValue(arg))
+                    else -> {
+                        require(!arg.startsWith("--")) { "Unknown option: $arg" }
+                        files.add(Paths.get(arg))
+                    }
+                }
+            }
+
+            return ReplayOptions(requireNotNull(dictionary) { "No dictionary" }, files, threads, batchSize, delimiter, settings)
+        }
+    }
+}
+
+/**
+ * Decodes FIX log files with [com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodec] and prints throughput, latency and error statistics
+ */
+fun main(args: Array<String>) {
+    val options = try {
+        ReplayOptions.parse(args)
+    } catch (e: IllegalArgumentException) {
+        System.err.println(e.message)
+        System.err.println(USAGE)
+        exitProcess(1)
+    }
+
+    FixOrchestraCodecFactory().use { factory ->
+        factory.init(FileCodecContext(options.dictionary))
+        replay(factory, options)
+    }
+}
+
+fun replay(factory: FixOrchestraCodecFactory, options: ReplayOptions): ReplayStatistics {
+    val queue: BlockingQueue<List<FixFrame>> = ArrayBlockingQueue(options.threads * 4)
+    val executor = Executors.newFixedThreadPool(options.threads)
+    val codecs = List(options.threads) { factory.create(options.settings) }
+
+    try {
+        val start = System.nanoTime()
+        val workers: List<Future<ReplayStatistics>> = codecs.map { codec -> executor.submit<ReplayStatistics> { codec.decode(queue) } }
+        var malformedFrames = 0L
+
+        var batch = ArrayList<FixFrame>(options.batchSize)
+
+        for (file in options.files) {
+            LOGGER.info { "Replaying file: $file" }
+
+            val reader = FixLogReader(file, options.delimiter)
+
+            reader.forEach { frame ->
+                batch.add(frame)
+
+                if (batch.size == options.batchSize) {
+                    queue.put(batch)
+                    batch = ArrayList(options.batchSize)
+                }
+            }
+
+            malformedFrames += reader.malformedFrames
+        }
+
+        if (batch.isNotEmpty()) queue.put(batch)
+        repeat(options.threads) { queue.put(END_OF_DATA) }
+
+        val statistics = ReplayStatistics()
+
+        workers.forEach { worker ->
+            try {
+                statistics += worker.get()
+            } catch (e: ExecutionException) {
+                throw IllegalStateException("Replay thread failed", e.cause)
+            }
+        }
+
+        statistics.report(System.out, System.nanoTime() - start, options.threads, options.batchSize, malformedFrames)
+
+        return statistics
+    } finally {
+        executor.shutdownNow()
+        codecs.forEach(IPipelineCodec::close)
+    }
+}
+
+private fun IPipelineCodec.decode(queue: BlockingQueue<List<FixFrame>>): ReplayStatistics {
+    val statistics = ReplayStatistics()
+
+    while (true) {
+        val batch = queue.take()
+        if (batch === END_OF_DATA) break
+
+        val context = ReportingContext()
+        val group = batch.toMessageGroup()
+        val start = System.nanoTime()
+        val error = try {
+            decode(group, context)
+            null
+        } catch (e: Exception) {
+            e
+        }
+
+        statistics.onBatch(System.nanoTime() - start)
+        batch.forEach { statistics[it.msgType].onMessage() }
+
+        when {
+            error == null && context.warnings.isEmpty() -> continue
+            batch.size == 1 -> statistics[batch[0].msgType].onResult(error, context.warnings)
+            else -> batch.forEach { frame ->
+                // errors and warnings of a group cannot be attributed to its messages so they are decoded one by one
+                val frameContext = ReportingContext()
+                val frameError = try {
+                    decode(listOf(frame).toMessageGroup(), frameContext)
+                    null
+                } catch (e: Exception) {
+                    e
+                }
+                statistics[frame.msgType].onResult(frameError, frameContext.warnings)
+            }
+        }
+    }
+
+    return statistics
+}
+
+private fun TypeStatistics.onResult(error: Exception?, warnings: List<String>) {
+    if (error != null) onFailure(error.message ?: error.javaClass.name)
+    warnings.forEach(::onWarning)
+}
+
+private fun List<FixFrame>.toMessageGroup(): MessageGroup = MessageGroup.newBuilder().also { group ->
+    forEach { frame ->
+        group.addMessages(AnyMessage.newBuilder().setRawMessage(RawMessage.newBuilder().apply {
+            body = frame.body
+            metadataBuilder.protocol = PROTOCOL
+        }))
+    }
+}.build()
+
+private class FileCodecContext(private val dictionary: Path) : IPipelineCodecContext {
+    override fun get(alias: DictionaryAlias): InputStream = throw UnsupportedOperationException("Dictionary aliases are not supported")
+    override fun get(type: DictionaryType): InputStream = Files.newInputStream(dictionary)
+    override fun getDictionaryAliases(): Set<String> = emptySet()
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.replay
+
+import java.io.PrintStream
+
+private const val MAX_DISTINCT_ERRORS = 20
+private const val MAX_ERROR_LENGTH = 200
+private const val OTHER_ERRORS = "<other>"
+private val PERCENTILES = doubleArrayOf(50.0, 90.0, 99.0, 99.9, 99.99)
+
+class TypeStatistics {
+    var messages: Long = 0
+        private set
+    var failed: Long = 0
+        private set
+    var warnings: Long = 0
+        private set
+
+    /**
+     * Error and warning texts with their counts.
+     * Only the first [MAX_DISTINCT_ERRORS] texts are kept, the rest are counted as [OTHER_ERRORS]
+     */
+    val errors: Map<String, Long>
+        get() = _errors
+
+    private val _errors = LinkedHashMap<String, Long>()
+
+    fun onMessage() {
+        messages++
+    }
+
+    fun onFailure(error: String) {
+        failed++
+        onError(error)
+    }
+
+    fun onWarning(warning: String) {
+        warnings++
+        onError(warning)
+    }
+
+    operator fun plusAssign(other: TypeStatistics) {
+        messages += other.messages
+        failed += other.failed
+        warnings += other.warnings
+        other._errors.forEach { (error, count) -> onError(error, count) }
+    }
+
+    private fun onError(error: String, count: Long = 1) {
+        val text = error.take(MAX_ERROR_LENGTH)
+        val key = when {
+            text in _errors || _errors.size < MAX_DISTINCT_ERRORS -> text
+            else -> OTHER_ERRORS
+        }
+
+        _errors[key] = (_errors[key] ?: 0) + count
+    }
+}
+
+/**
+ * Statistics collected by a single replay thread
+ */
+class ReplayStatistics {
+    private var latencies = LongArray(1024)
+
+    var batches: Int = 0
+        private set
+
+    val types: Map<String, TypeStatistics>
+        get() = _types
+
+    private val _types = HashMap<String, TypeStatistics>()
+
+    val messages: Long
+        get() = _types.values.sumOf(TypeStatistics::messages)
+
+    operator fun get(msgType: String): TypeStatistics = _types.getOrPut(msgType, ::TypeStatistics)
+
+    fun onBatch(latency: Long) {
+        if (batches == latencies.size) latencies = latencies.copyOf(batches * 2)
+        latencies[batches++] = latency
+    }
+
+    operator fun plusAssign(other: ReplayStatistics) {
+        for (index in 0 until other.batches) onBatch(other.latencies[index])
+        other._types.forEach { (msgType, statistics) -> this[msgType] += statistics }
+    }
+
+    fun report(out: PrintStream, elapsed: Long, threads: Int, batchSize: Int, malformedFrames: Long) {
+        val messages = messages
+        val seconds = elapsed / 1_000_000_000.0
+
+        out.println("Messages: $messages, batches: $batches (batch size: $batchSize), threads: $threads, malformed frames: $malformedFrames")
+        out.printf("Elapsed: %.3f s, throughput: %.1f msg/s%n", seconds, if (seconds > 0) messages / seconds else 0.0)
+
+        if (batches > 0) {
+            val sorted = latencies.copyOf(batches).apply { sort() }
+            val percentiles = PERCENTILES.joinToString(", ") { "p$it=${sorted.percentile(it).micros}" }
+            out.println("Batch latency (µs): min=${sorted.first().micros}, $percentiles, max=${sorted.last().micros}")
+        }
+
+        out.println()
+        out.printf("%-10s %12s %12s %12s%n", "MsgType", "Messages", "Failed", "Warnings")
+
+        val sortedTypes = _types.entries.sortedByDescending { it.value.messages }
+
+        sortedTypes.forEach { (msgType, statistics) ->
+            out.printf("%-10s %12d %12d %12d%n", msgType, statistics.messages, statistics.failed, statistics.warnings)
+        }
+
+        sortedTypes.filter { it.value.errors.isNotEmpty() }.forEach { (msgType, statistics) ->
+            out.println()
+            out.println("Errors of $msgType:")
+            statistics.errors.entries.sortedByDescending { it.value }.forEach { (error, count) ->
+                out.printf("%12d  %s%n", count, error.replace('\n', ' '))
+            }
+        }
+    }
+
+    companion object {
+        private val Long.micros: String
+            get() = "%.1f".format(this / 1_000.0)
+
+        private fun LongArray.percentile(percentile: Double): Long = this[((percentile / 100 * size).toInt()).coerceIn(0, size - 1)]
+    }
+}
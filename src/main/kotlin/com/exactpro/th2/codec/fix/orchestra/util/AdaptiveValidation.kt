@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import com.exactpro.th2.codec.fix.orchestra.AdaptiveValidationSettings
+import com.exactpro.th2.codec.fix.orchestra.validator.ValidationLevel
+import mu.KotlinLogging
+import java.util.concurrent.TimeUnit.MICROSECONDS
+import java.util.concurrent.TimeUnit.MILLISECONDS
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+
+private val LOGGER = KotlinLogging.logger { }
+private val LEVELS = ValidationLevel.values()
+
+/**
+ * Change of the validation level made by [AdaptiveValidation]
+ */
+data class LevelChange(val from: ValidationLevel, val to: ValidationLevel, val averageMicros: Long, val sloMicros: Long) {
+    val isDegradation: Boolean
+        get() = to > from
+
+    override fun toString(): String = when {
+        isDegradation -> "Validation degraded from $from to $to: average decode time ${averageMicros}us exceeds SLO ${sloMicros}us"
+        else -> "Validation restored from $from to $to: average decode time ${averageMicros}us is below ${sloMicros}us SLO"
+    }
+}
+
+/**
+ * Selects the [ValidationLevel] from the exponentially weighted average of the per-message processing time.
+ * The level is lowered by one step when the average exceeds the SLO and is raised by one step when the average drops
+ * below the restore threshold. Any change is followed by a hold period without changes, so the average can settle
+ */
+class AdaptiveValidation(
+    private val settings: AdaptiveValidationSettings,
+    private val clock: () -> Long = System::nanoTime,
+) {
+    private val slo = MICROSECONDS.toNanos(settings.latencySloMicros).toDouble()
+    private val restoreThreshold = slo * settings.restoreRatio
+    private val hold = MILLISECONDS.toNanos(settings.holdMillis)
+    private val average = AtomicLong(0.0.toRawBits())
+    private val _level = AtomicReference(ValidationLevel.FULL)
+    private val changedAt = AtomicLong(clock() - hold)
+
+    init {
+        require(settings.latencySloMicros > 0) { "Latency SLO must be positive: ${settings.latencySloMicros}" }
+        require(settings.restoreRatio > 0 && settings.restoreRatio < 1) { "Restore ratio must be in (0, 1): ${settings.restoreRatio}" }
+        require(settings.smoothing > 0 && settings.smoothing <= 1) { "Smoothing must be in (0, 1]: ${settings.smoothing}" }
+        require(settings.holdMillis >= 0) { "Hold time must not be negative: ${settings.holdMillis}" }
+    }
+
+    val level: ValidationLevel
+        get() = _level.get()
+
+    /**
+     * Records processing time of a message and returns the change of the level caused by it if any
+     */
+    fun record(nanos: Long): LevelChange? {
+        val average = update(nanos.toDouble())
+        val current = _level.get()
+
+        val next = when {
+            average > slo && current < settings.lowestLevel -> LEVELS[current.ordinal + 1]
+            average < restoreThreshold && current > ValidationLevel.FULL -> LEVELS[current.ordinal - 1]
+            else -> return null
+        }
+
+        val now = clock()
+        val last = changedAt.get()
+
+        if (now - last < hold || !changedAt.compareAndSet(last, now) || !_level.compareAndSet(current, next)) {
+            return null
+        }
+
+        return LevelChange(current, next, (average / NANOSECONDS_IN_MICROSECOND).toLong(), settings.latencySloMicros).also {
+            LOGGER.info { it.toString() }
+        }
+    }
+
+    private fun update(sample: Double): Double {
+        while (true) {
+            val bits = average.get()
+            val previous = Double.fromBits(bits)
+            val next = if (previous == 0.0) sample else previous + settings.smoothing * (sample - previous)
+            if (average.compareAndSet(bits, next.toRawBits())) return next
+        }
+    }
+
+    companion object {
+        private const val NANOSECONDS_IN_MICROSECOND = 1_000.0
+    }
+}
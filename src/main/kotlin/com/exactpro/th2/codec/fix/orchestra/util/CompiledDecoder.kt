@@ -0,0 +1,326 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import com.exactpro.th2.common.grpc.ListValue
+import com.exactpro.th2.common.grpc.Message
+import com.exactpro.th2.common.grpc.Message.Builder
+import com.exactpro.th2.common.grpc.Value
+import com.exactpro.th2.common.message.addField
+import com.exactpro.th2.common.message.messageType
+import com.exactpro.th2.common.message.set
+import mu.KotlinLogging
+import quickfix.FieldMap
+import quickfix.field.converter.BooleanConverter
+import quickfix.field.converter.DecimalConverter
+import quickfix.field.converter.IntConverter
+import quickfix.field.converter.UtcDateOnlyConverter
+import quickfix.field.converter.UtcTimeOnlyConverter
+import quickfix.field.converter.UtcTimestampConverter
+import java.util.concurrent.atomic.AtomicInteger
+import quickfix.Message as QuickfixMessage
+
+private val LOGGER = KotlinLogging.logger { }
+
+/**
+ * Decodes messages with [FixMessage.decode] until the message type is decoded [threshold] times and then with [CompiledDecoder].
+ * A negative [threshold] disables the compilation
+ */
+class TieredDecoder(
+    val structure: FixMessage,
+    private val threshold: Int,
+    private val internTables: Map<String, ValueInternTable> = emptyMap(),
+) {
+    private val invocations = AtomicInteger()
+
+    @Volatile
+    private var compiled: CompiledDecoder? = if (threshold == 0) CompiledDecoder(structure, internTables) else null
+
+    val isCompiled: Boolean
+        get() = compiled != null
+
+    fun decode(message: QuickfixMessage): DecodeResult {
+        compiled?.let { return it.decode(message) }
+
+        if (threshold > 0 && invocations.incrementAndGet() == threshold) {
+            LOGGER.info { "Compiling decoder of message ${structure.name} after $threshold decodings" }
+            return CompiledDecoder(structure, internTables).also { compiled = it }.decode(message)
+        }
+
+        return structure.decode(message)
+    }
+}
+
+/**
+ * Decoder of a message structure compiled into a tree of nodes specialized by the field kind and type.
+ * It produces the same result as [FixMessage.decode] but does not iterate the structure maps,
+ * dispatch on the type name or look for the fields of components on every message.
+ * Values of enumerated fields are prebuilt, values of string fields are taken from [internTables] by the field name if present
+ */
+class CompiledDecoder(structure: FixMessage, internTables: Map<String, ValueInternTable> = emptyMap()) {
+    private val name = structure.name
+    private val headerPath = "$name.$HEADER_FIELD"
+    private val trailerPath = "$name.$TRAILER_FIELD"
+    private val header = structure.header.compile(headerPath, internTables)
+    private val trailer = structure.trailer.compile(trailerPath, internTables)
+    private val body = structure.body.compile(name, internTables)
+
+    fun decode(message: QuickfixMessage): DecodeResult {
+        val errors = mutableListOf<String>()
+
+        val bodyMessage = Message.newBuilder()
+        val headerMessage = Message.newBuilder()
+        val trailerMessage = Message.newBuilder()
+
+        header.decodeTo(message.header, headerMessage, errors, headerPath)
+        trailer.decodeTo(message.trailer, trailerMessage, errors, trailerPath)
+        body.decodeTo(message, bodyMessage, errors, name)
+
+        bodyMessage[HEADER_FIELD] = headerMessage
+        bodyMessage[TRAILER_FIELD] = trailerMessage
+        bodyMessage.messageType = name
+
+        return DecodeResult(bodyMessage, errors)
+    }
+}
+
+/**
+ * Decoder of entries of a repeating [group] compiled the same way as [CompiledDecoder]
+ */
+internal class CompiledEntryDecoder(group: FixField, internTables: Map<String, ValueInternTable> = emptyMap()) {
+    private val entry = group.fields.compile(null, internTables)
+
+    fun decodeTo(entry: FieldMap, target: Builder, errors: MutableList<String>, path: String) {
+        this.entry.decodeTo(entry, target, errors, path)
+    }
+}
+
+/**
+ * Nodes of a field map (message, header, trailer or group entry) sharing one presence bitmap
+ */
+private class Level(private val layout: PresenceLayout, private val nodes: Array<Node>) {
+    fun decodeTo(message: FieldMap, target: Builder, errors: MutableList<String>, path: String) {
+        nodes.decodeTo(message, layout.scan(message), target, errors, path)
+    }
+}
+
+/**
+ * Compiles fields of a field map into a [Level].
+ * [path] is set if the path of the field map does not depend on indexes of group entries
+ */
+private fun Map<String, FixField>.compile(path: String?, internTables: Map<String, ValueInternTable>): Level {
+    val fieldTags = LinkedHashSet<Int>()
+    val groupTags = LinkedHashSet<Int>()
+    collectPresenceTags(fieldTags, groupTags)
+    val layout = PresenceLayout(fieldTags, groupTags)
+    return Level(layout, compile(layout, path, internTables))
+}
+
+private fun Map<String, FixField>.compile(layout: PresenceLayout, path: String?, internTables: Map<String, ValueInternTable>): Array<Node> = entries.asSequence()
+    .filter { (name, _) -> name != HEADER_COMPONENT && name != HEADER_FIELD && name != TRAILER_COMPONENT && name != TRAILER_FIELD }
+    .map { (name, field) -> field.compile(name, layout, path, internTables) }
+    .toList()
+    .toTypedArray()
+
+private fun FixField.compile(name: String, layout: PresenceLayout, path: String?, internTables: Map<String, ValueInternTable>): Node {
+    if (isField) {
+        val bit = layout.fieldBit(tag)
+
+        if (isEnum) return EnumNode(name, tag, bit, isRequired, reversedValues)
+
+        return when (type) {
+            "Boolean" -> BooleanNode(name, tag, bit, isRequired)
+            "int", "Length", "NumInGroup", "SeqNum" -> IntNode(name, tag, bit, isRequired)
+            "float", "Amt", "Price", "PriceOffset", "Qty", "Percentage" -> DecimalNode(name, tag, bit, isRequired)
+            "UTCDateOnly" -> DateOnlyNode(name, tag, bit, isRequired)
+            "UTCTimeOnly" -> TimeOnlyNode(name, tag, bit, isRequired)
+            "UTCTimestamp" -> TimestampNode(name, tag, bit, isRequired)
+            else -> internTables[name]?.let { InternedStringNode(name, tag, bit, isRequired, it) } ?: StringNode(name, tag, bit, isRequired)
+        }
+    }
+
+    if (isGroup) {
+        return GroupNode(name, tag, layout.groupBit(tag), isRequired, path?.let { "$it.$name" }, fields.compile(null, internTables))
+    }
+
+    val componentPath = path?.let { "$it.$name" }
+    val fieldTags = LinkedHashSet<Int>()
+    val groupTags = LinkedHashSet<Int>()
+    fields.collectPresenceTags(fieldTags, groupTags)
+    return ComponentNode(name, isRequired, componentPath, layout.mask(fieldTags, groupTags), fields.compile(layout, componentPath, internTables))
+}
+
+private fun Array<Node>.decodeTo(message: FieldMap, presence: LongArray, target: Builder, errors: MutableList<String>, path: String) {
+    for (node in this) {
+        if (!node.isPresent(presence)) {
+            if (node.isRequired) {
+                errors += "Missing required field: $path.${node.name}"
+            }
+
+            continue
+        }
+
+        node.decode(message, presence, target, errors, path)
+    }
+}
+
+private abstract class Node(val name: String, val isRequired: Boolean) {
+    abstract fun isPresent(presence: LongArray): Boolean
+    abstract fun decode(message: FieldMap, presence: LongArray, target: Builder, errors: MutableList<String>, path: String)
+}
+
+private abstract class FieldNode(name: String, protected val tag: Int, private val bit: Int, isRequired: Boolean) : Node(name, isRequired) {
+    override fun isPresent(presence: LongArray): Boolean = presence.isSet(bit)
+
+    override fun decode(message: FieldMap, presence: LongArray, target: Builder, errors: MutableList<String>, path: String) {
+        decode(message.getString(tag), target, errors, path)
+    }
+
+    abstract fun decode(value: String, target: Builder, errors: MutableList<String>, path: String)
+}
+
+private class StringNode(name: String, tag: Int, bit: Int, isRequired: Boolean) : FieldNode(name, tag, bit, isRequired) {
+    override fun decode(value: String, target: Builder, errors: MutableList<String>, path: String) {
+        target.addField(name, value)
+    }
+}
+
+private class InternedStringNode(
+    name: String,
+    tag: Int,
+    bit: Int,
+    isRequired: Boolean,
+    private val table: ValueInternTable,
+) : FieldNode(name, tag, bit, isRequired) {
+    override fun decode(value: String, target: Builder, errors: MutableList<String>, path: String) {
+        target.putFields(name, table.intern(value))
+    }
+}
+
+private class EnumNode(name: String, tag: Int, bit: Int, isRequired: Boolean, names: Map<String, String>) : FieldNode(name, tag, bit, isRequired) {
+    /**
+     * Values of the symbolic names by the codes and the names themselves, a code takes precedence over an equal name
+     */
+    private val values: Map<String, Value> = HashMap<String, Value>().apply {
+        names.values.forEach { put(it, enumValue(it)) }
+        names.forEach { (code, name) -> put(code, enumValue(name)) }
+    }
+
+    override fun decode(value: String, target: Builder, errors: MutableList<String>, path: String) {
+        when (val decoded = values[value]) {
+            null -> errors += "Out of range value '$value' at: $path.$name"
+            else -> target.putFields(name, decoded)
+        }
+    }
+}
+
+private class BooleanNode(name: String, tag: Int, bit: Int, isRequired: Boolean) : FieldNode(name, tag, bit, isRequired) {
+    override fun decode(value: String, target: Builder, errors: MutableList<String>, path: String) {
+        try {
+            target.addField(name, BooleanConverter.convert(value))
+        } catch (e: Exception) {
+            errors += "Invalid boolean value '$value' at: $path.$name"
+        }
+    }
+}
+
+private class IntNode(name: String, tag: Int, bit: Int, isRequired: Boolean) : FieldNode(name, tag, bit, isRequired) {
+    override fun decode(value: String, target: Builder, errors: MutableList<String>, path: String) {
+        try {
+            target.addField(name, IntConverter.convert(value))
+        } catch (e: Exception) {
+            errors += "Invalid integer value '$value' at: $path.$name"
+        }
+    }
+}
+
+private class DecimalNode(name: String, tag: Int, bit: Int, isRequired: Boolean) : FieldNode(name, tag, bit, isRequired) {
+    override fun decode(value: String, target: Builder, errors: MutableList<String>, path: String) {
+        try {
+            target.addField(name, DecimalConverter.convert(value))
+        } catch (e: Exception) {
+            errors += "Invalid decimal value '$value' at: $path.$name"
+        }
+    }
+}
+
+private class DateOnlyNode(name: String, tag: Int, bit: Int, isRequired: Boolean) : FieldNode(name, tag, bit, isRequired) {
+    override fun decode(value: String, target: Builder, errors: MutableList<String>, path: String) {
+        try {
+            target.addField(name, UtcDateOnlyConverter.convertToLocalDate(value))
+        } catch (e: Exception) {
+            errors += "Invalid date-only value '$value' at: $path.$name"
+        }
+    }
+}
+
+private class TimeOnlyNode(name: String, tag: Int, bit: Int, isRequired: Boolean) : FieldNode(name, tag, bit, isRequired) {
+    override fun decode(value: String, target: Builder, errors: MutableList<String>, path: String) {
+        try {
+            target.addField(name, UtcTimeOnlyConverter.convertToLocalTime(value))
+        } catch (e: Exception) {
+            errors += "Invalid time-only value '$value' at: $path.$name"
+        }
+    }
+}
+
+private class TimestampNode(name: String, tag: Int, bit: Int, isRequired: Boolean) : FieldNode(name, tag, bit, isRequired) {
+    override fun decode(value: String, target: Builder, errors: MutableList<String>, path: String) {
+        try {
+            target.addField(name, UtcTimestampConverter.convertToLocalDateTime(value))
+        } catch (e: Exception) {
+            errors += "Invalid date-time value '$value' at: $path.$name"
+        }
+    }
+}
+
+private class ComponentNode(
+    name: String,
+    isRequired: Boolean,
+    private val componentPath: String?,
+    private val mask: PresenceMask,
+    private val fields: Array<Node>,
+) : Node(name, isRequired) {
+    override fun isPresent(presence: LongArray): Boolean = mask.intersects(presence)
+
+    override fun decode(message: FieldMap, presence: LongArray, target: Builder, errors: MutableList<String>, path: String) {
+        target[name] = Message.newBuilder().apply {
+            fields.decodeTo(message, presence, this, errors, componentPath ?: "$path.$name")
+        }
+    }
+}
+
+private class GroupNode(
+    name: String,
+    private val tag: Int,
+    private val bit: Int,
+    isRequired: Boolean,
+    private val groupPath: String?,
+    private val entry: Level,
+) : Node(name, isRequired) {
+    override fun isPresent(presence: LongArray): Boolean = presence.isSet(bit)
+
+    override fun decode(message: FieldMap, presence: LongArray, target: Builder, errors: MutableList<String>, path: String) {
+        val groupPath = groupPath ?: "$path.$name"
+
+        target[name] = ListValue.newBuilder().apply {
+            message.getGroups(tag).forEachIndexed { index, group ->
+                entry.decodeTo(group, addValuesBuilder().messageValueBuilder, errors, "$groupPath[$index]")
+            }
+        }
+    }
+}
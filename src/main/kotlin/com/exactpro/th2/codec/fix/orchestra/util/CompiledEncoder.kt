@@ -0,0 +1,344 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import com.exactpro.th2.common.grpc.Message
+import com.exactpro.th2.common.grpc.Value
+import com.exactpro.th2.common.grpc.Value.KindCase.LIST_VALUE
+import com.exactpro.th2.common.grpc.Value.KindCase.MESSAGE_VALUE
+import com.exactpro.th2.common.grpc.Value.KindCase.NULL_VALUE
+import com.exactpro.th2.common.grpc.Value.KindCase.SIMPLE_VALUE
+import mu.KotlinLogging
+import quickfix.FieldMap
+import quickfix.Group
+import quickfix.field.BeginString
+import quickfix.field.MsgType
+import quickfix.field.converter.BooleanConverter
+import quickfix.field.converter.DecimalConverter
+import quickfix.field.converter.IntConverter
+import quickfix.field.converter.UtcDateOnlyConverter
+import quickfix.field.converter.UtcTimeOnlyConverter
+import quickfix.field.converter.UtcTimestampConverter
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.time.LocalTime
+import java.util.concurrent.atomic.AtomicInteger
+
+private val LOGGER = KotlinLogging.logger { }
+
+private val SKIPPED_NAMES = setOf(HEADER_COMPONENT, HEADER_FIELD, TRAILER_COMPONENT, TRAILER_FIELD)
+
+/**
+ * Encodes messages with [FixMessage.encode] until the message type is encoded [threshold] times and then with [CompiledEncoder].
+ * A negative [threshold] disables the compilation
+ */
+class TieredEncoder(val structure: FixMessage, private val threshold: Int) {
+    private val invocations = AtomicInteger()
+
+    @Volatile
+    private var compiled: CompiledEncoder? = if (threshold == 0) CompiledEncoder(structure) else null
+
+    val isCompiled: Boolean
+        get() = compiled != null
+
+    fun encode(message: Message, beginString: String): EncodeResult {
+        compiled?.let { return it.encode(message, beginString) }
+
+        if (threshold > 0 && invocations.incrementAndGet() == threshold) {
+            LOGGER.info { "Compiling encoder of message ${structure.name} after $threshold encodings" }
+            return CompiledEncoder(structure).also { compiled = it }.encode(message, beginString)
+        }
+
+        return structure.encode(message, beginString)
+    }
+}
+
+/**
+ * Encoder of a message structure compiled into a fixed sequence of nodes specialized by the field kind and type.
+ * It produces the same result as [FixMessage.encode] but reads the fields of each level once in the structure order
+ * and detects unknown fields with a precomputed name set instead of building a union of names
+ */
+class CompiledEncoder(private val structure: FixMessage) {
+    private val name = structure.name
+    private val headerPath = "$name.$HEADER_FIELD"
+    private val trailerPath = "$name.$TRAILER_FIELD"
+    private val header = structure.header.compile(headerPath, false)
+    private val trailer = structure.trailer.compile(trailerPath, false)
+    private val body = structure.body.compile(name, true)
+
+    fun encode(message: Message, beginString: String): EncodeResult {
+        val errors = mutableListOf<String>()
+
+        val bodyFields = message.fieldsMap
+        val headerFields = bodyFields[HEADER_FIELD]?.takeIf(Value::hasMessageValue)?.messageValue?.fieldsMap
+        val trailerFields = bodyFields[TRAILER_FIELD]?.takeIf(Value::hasMessageValue)?.messageValue?.fieldsMap
+
+        val target = Th2QfjMessage(structure.headerFieldOrder, structure.bodyFieldOrder, structure.trailerFieldOrder)
+
+        headerFields?.let { header.encodeTo(it, target.header, errors, headerPath) }
+
+        target.header.run {
+            setString(BeginString.FIELD, beginString)
+            setString(MsgType.FIELD, structure.type)
+        }
+
+        body.encodeTo(bodyFields, target, errors, name)
+
+        trailerFields?.let { trailer.encodeTo(it, target.trailer, errors, trailerPath) }
+
+        return EncodeResult(target, errors)
+    }
+}
+
+private class FieldSequence(val nodes: Array<EncoderNode>, val names: Set<String>)
+
+/**
+ * Compiles fields of a field map. [path] is set if the path of the field map does not depend on indexes of group entries
+ */
+private fun Map<String, FixField>.compile(path: String?, checkPresence: Boolean): FieldSequence = FieldSequence(
+    entries.asSequence()
+        .filter { (name, _) -> name !in SKIPPED_NAMES }
+        .map { (name, field) -> field.compile(name, path, checkPresence) }
+        .toList()
+        .toTypedArray(),
+    keys + SKIPPED_NAMES
+)
+
+private fun FixField.compile(name: String, path: String?, checkPresence: Boolean): EncoderNode {
+    val isRequired = checkPresence && isRequired
+
+    return when {
+        isField -> when {
+            isEnum -> EnumEncoder(name, tag, isRequired, values)
+            else -> when (type) {
+                "Boolean" -> BooleanEncoder(name, tag, isRequired)
+                "int", "Length", "NumInGroup", "SeqNum" -> IntEncoder(name, tag, isRequired)
+                "float", "Amt", "Price", "PriceOffset", "Qty", "Percentage" -> DecimalEncoder(name, tag, isRequired)
+                "UTCDateOnly" -> DateOnlyEncoder(name, tag, isRequired)
+                "UTCTimeOnly" -> TimeOnlyEncoder(name, tag, isRequired)
+                "UTCTimestamp" -> TimestampEncoder(name, tag, isRequired)
+                else -> StringEncoder(name, tag, isRequired)
+            }
+        }
+        isComponent -> {
+            val componentPath = path?.let { "$it.$name" }
+            ComponentEncoder(name, isRequired, componentPath, fields.compile(componentPath, checkPresence))
+        }
+        else -> GroupEncoder(name, tag, isRequired, path?.let { "$it.$name" }, fieldOrder, fields.compile(null, checkPresence))
+    }
+}
+
+private fun FieldSequence.encodeTo(message: Map<String, Value>, target: FieldMap, errors: MutableList<String>, path: String) {
+    var found = 0
+
+    for (node in nodes) {
+        val value = message[node.name]
+
+        if (value != null) found++
+
+        if (value == null || value.kindCase == NULL_VALUE) {
+            if (node.isRequired) {
+                errors += "Missing required field: $path.${node.name}"
+            }
+
+            continue
+        }
+
+        node.encode(value, target, errors, path)
+    }
+
+    if (found < message.size) {
+        for (name in message.keys) {
+            if (name !in names) errors += "Unexpected field: $path.$name"
+        }
+    }
+}
+
+private abstract class EncoderNode(val name: String, val isRequired: Boolean) {
+    abstract fun encode(value: Value, target: FieldMap, errors: MutableList<String>, path: String)
+}
+
+private abstract class FieldEncoder(name: String, protected val tag: Int, isRequired: Boolean) : EncoderNode(name, isRequired) {
+    override fun encode(value: Value, target: FieldMap, errors: MutableList<String>, path: String) {
+        when (value.kindCase) {
+            SIMPLE_VALUE -> encode(value.simpleValue, target, errors, path)
+            else -> errors += "Expected $SIMPLE_VALUE but got ${value.kindCase} at: $path.$name"
+        }
+    }
+
+    abstract fun encode(value: String, target: FieldMap, errors: MutableList<String>, path: String)
+}
+
+private class StringEncoder(name: String, tag: Int, isRequired: Boolean) : FieldEncoder(name, tag, isRequired) {
+    override fun encode(value: String, target: FieldMap, errors: MutableList<String>, path: String) {
+        target.setString(tag, value)
+    }
+}
+
+private class EnumEncoder(name: String, tag: Int, isRequired: Boolean, private val codes: Map<String, String>) : FieldEncoder(name, tag, isRequired) {
+    private val knownCodes: Set<String> = codes.values.toHashSet()
+
+    override fun encode(value: String, target: FieldMap, errors: MutableList<String>, path: String) {
+        val code = codes[value] ?: value
+
+        if (code in knownCodes) {
+            target.setString(tag, code)
+        } else {
+            errors += "Out of range value '$code' at: $path.$name"
+        }
+    }
+}
+
+private class BooleanEncoder(name: String, tag: Int, isRequired: Boolean) : FieldEncoder(name, tag, isRequired) {
+    override fun encode(value: String, target: FieldMap, errors: MutableList<String>, path: String) {
+        val converted = when (value) {
+            "true" -> true
+            "false" -> false
+            else -> try {
+                BooleanConverter.convert(value)
+            } catch (e: Exception) {
+                errors += "Invalid boolean value '$value' at: $path.$name"
+                return
+            }
+        }
+
+        target.setBoolean(tag, converted)
+    }
+}
+
+private class IntEncoder(name: String, tag: Int, isRequired: Boolean) : FieldEncoder(name, tag, isRequired) {
+    override fun encode(value: String, target: FieldMap, errors: MutableList<String>, path: String) {
+        val converted = try {
+            IntConverter.convert(value)
+        } catch (e: Exception) {
+            errors += "Invalid integer value '$value' at: $path.$name"
+            return
+        }
+
+        target.setInt(tag, converted)
+    }
+}
+
+private class DecimalEncoder(name: String, tag: Int, isRequired: Boolean) : FieldEncoder(name, tag, isRequired) {
+    override fun encode(value: String, target: FieldMap, errors: MutableList<String>, path: String) {
+        val converted = try {
+            DecimalConverter.convert(value)
+        } catch (e: Exception) {
+            errors += "Invalid decimal value '$value' at: $path.$name"
+            return
+        }
+
+        target.setDecimal(tag, converted)
+    }
+}
+
+private class DateOnlyEncoder(name: String, tag: Int, isRequired: Boolean) : FieldEncoder(name, tag, isRequired) {
+    override fun encode(value: String, target: FieldMap, errors: MutableList<String>, path: String) {
+        val converted = try {
+            LocalDate.parse(value)
+        } catch (e: Exception) {
+            try {
+                UtcDateOnlyConverter.convertToLocalDate(value)
+            } catch (e: Exception) {
+                errors += "Invalid date-only value '$value' at: $path.$name"
+                return
+            }
+        }
+
+        target.setUtcDateOnly(tag, converted)
+    }
+}
+
+private class TimeOnlyEncoder(name: String, tag: Int, isRequired: Boolean) : FieldEncoder(name, tag, isRequired) {
+    override fun encode(value: String, target: FieldMap, errors: MutableList<String>, path: String) {
+        val converted = try {
+            LocalTime.parse(value)
+        } catch (e: Exception) {
+            try {
+                UtcTimeOnlyConverter.convertToLocalTime(value)
+            } catch (e: Exception) {
+                errors += "Invalid time-only value '$value' at: $path.$name"
+                return
+            }
+        }
+
+        target.setUtcTimeOnly(tag, converted, converted.calculateTimeOnlyPrecision())
+    }
+}
+
+private class TimestampEncoder(name: String, tag: Int, isRequired: Boolean) : FieldEncoder(name, tag, isRequired) {
+    override fun encode(value: String, target: FieldMap, errors: MutableList<String>, path: String) {
+        val converted = try {
+            LocalDateTime.parse(value)
+        } catch (e: Exception) {
+            try {
+                UtcTimestampConverter.convertToLocalDateTime(value)
+            } catch (e: Exception) {
+                errors += "Invalid date-time value '$value' at: $path.$name"
+                return
+            }
+        }
+
+        target.setUtcTimeStamp(tag, converted, converted.calculateTimestampPrecision())
+    }
+}
+
+private class ComponentEncoder(
+    name: String,
+    isRequired: Boolean,
+    private val componentPath: String?,
+    private val fields: FieldSequence,
+) : EncoderNode(name, isRequired) {
+    override fun encode(value: Value, target: FieldMap, errors: MutableList<String>, path: String) {
+        when (value.kindCase) {
+            MESSAGE_VALUE -> fields.encodeTo(value.messageValue.fieldsMap, target, errors, componentPath ?: "$path.$name")
+            else -> errors += "Expected $MESSAGE_VALUE but got ${value.kindCase} at: $path.$name"
+        }
+    }
+}
+
+private class GroupEncoder(
+    name: String,
+    private val tag: Int,
+    isRequired: Boolean,
+    private val groupPath: String?,
+    private val fieldOrder: IntArray,
+    private val fields: FieldSequence,
+) : EncoderNode(name, isRequired) {
+    override fun encode(value: Value, target: FieldMap, errors: MutableList<String>, path: String) {
+        if (value.kindCase != LIST_VALUE) {
+            errors += "Expected $LIST_VALUE but got ${value.kindCase} at: $path.$name"
+            return
+        }
+
+        val groupPath = groupPath ?: "$path.$name"
+        val entries = value.listValue.valuesList
+
+        for (index in entries.indices) {
+            val entry = entries[index]
+
+            if (!entry.hasMessageValue()) {
+                errors += "Expected $MESSAGE_VALUE but got ${entry.kindCase} at: $groupPath[$index]"
+                continue
+            }
+
+            val group = Group(tag, fieldOrder[0], fieldOrder)
+            fields.encodeTo(entry.messageValue.fieldsMap, group, errors, "$groupPath[$index]")
+            target.addGroup(group)
+        }
+    }
+}
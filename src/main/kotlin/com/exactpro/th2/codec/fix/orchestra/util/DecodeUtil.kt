@@ -52,10 +52,29 @@ fun FixMessage.decode(message: QuickfixMessage): DecodeResult {
     return DecodeResult(bodyMessage, errors)
 }
 
+/**
+ * Decodes only the [header] of a message, the decoded message has neither body nor trailer
+ */
+fun FixMessage.decodeHeader(header: QuickfixMessage.Header): DecodeResult {
+    val errors = mutableListOf<String>()
+
+    val bodyMessage = Message.newBuilder()
+    val headerMessage = Message.newBuilder()
+
+    this.header.decodeMessage(header, headerMessage, errors, "$name.$HEADER_FIELD")
+
+    bodyMessage[HEADER_FIELD] = headerMessage
+    bodyMessage.messageType = name
+
+    return DecodeResult(bodyMessage, errors)
+}
+
 private fun FieldMap.isPresent(field: FixField): Boolean = when {
     field.isField -> isSetField(field.tag)
     field.isGroup -> hasGroup(1, field.tag)
-    else -> field.fields.values.any(::isPresent)
+    else -> field.presenceTags.let { (fieldTags, groupTags) ->
+        fieldTags.any(::isSetField) || groupTags.any { hasGroup(1, it) }
+    }
 }
 
 private fun Map<String, FixField>.decodeMessage(
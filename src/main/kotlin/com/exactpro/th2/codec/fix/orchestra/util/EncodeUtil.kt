@@ -168,11 +168,11 @@ private fun FixField.encodeField(
     }
 }
 
-private fun LocalTime.calculateTimeOnlyPrecision(): UtcTimestampPrecision {
+internal fun LocalTime.calculateTimeOnlyPrecision(): UtcTimestampPrecision {
     return calculateTimePrecision(nano)
 }
 
-private fun LocalDateTime.calculateTimestampPrecision(): UtcTimestampPrecision {
+internal fun LocalDateTime.calculateTimestampPrecision(): UtcTimestampPrecision {
     return calculateTimePrecision(nano)
 }
 
@@ -214,7 +214,7 @@ private fun String.toBooleanExact(): Boolean = when (this) {
     else -> error("Invalid boolean value: $this")
 }
 
-private class Th2QfjMessage(
+internal class Th2QfjMessage(
     headerFieldOrder: IntArray,
     bodyFieldOrder: IntArray,
     trailerFieldOrder: IntArray,
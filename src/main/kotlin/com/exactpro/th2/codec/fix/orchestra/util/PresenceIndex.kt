@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import quickfix.FieldMap
+
+/**
+ * Open addressing map from a tag to its dense index
+ */
+internal class TagIndex(tags: Collection<Int>) {
+    val size: Int = tags.size
+    private val mask: Int = Integer.highestOneBit(maxOf(size, 1) * 4 - 1) - 1
+    // the home slot is taken from the top bits of the Fibonacci hash
+    private val shift: Int = Integer.numberOfLeadingZeros(mask)
+    private val keys = IntArray(mask + 1)
+    private val indexes = IntArray(mask + 1) { -1 }
+
+    init {
+        tags.forEachIndexed { index, tag ->
+            var slot = tag.slot()
+            while (indexes[slot] >= 0) {
+                require(keys[slot] != tag) { "Duplicate tag: $tag" }
+                slot = (slot + 1) and mask
+            }
+            keys[slot] = tag
+            indexes[slot] = index
+        }
+    }
+
+    /**
+     * Returns the index of the [tag] or -1 if it is not indexed
+     */
+    operator fun get(tag: Int): Int {
+        var slot = tag.slot()
+
+        while (true) {
+            val index = indexes[slot]
+            if (index < 0 || keys[slot] == tag) return index
+            slot = (slot + 1) and mask
+        }
+    }
+
+    private fun Int.slot(): Int = (this * -0x61c88647) ushr shift
+}
+
+/**
+ * Open addressing map from a tag to a value, the tags are not boxed on lookups
+ */
+internal class TagMap<V : Any>(entries: Map<Int, V>) {
+    private val index = TagIndex(entries.keys)
+    private val values: Array<Any> = entries.values.toTypedArray()
+
+    @Suppress("UNCHECKED_CAST")
+    operator fun get(tag: Int): V? = index[tag].let { if (it < 0) null else values[it] as V }
+
+    operator fun contains(tag: Int): Boolean = index[tag] >= 0
+}
+
+/**
+ * Layout of the presence bitmap of a field map: the fields reachable without entering groups followed by the groups.
+ * The bitmap is filled by a single pass over the fields of a parsed field map
+ * so presence of a component is an intersection with its [PresenceMask] instead of a lookup of every nested tag
+ */
+internal class PresenceLayout(fieldTags: Collection<Int>, groupTags: Collection<Int>) {
+    private val fields = TagIndex(fieldTags)
+    private val groups = TagIndex(groupTags)
+    private val words = (fields.size + groups.size + 63) ushr 6
+
+    fun fieldBit(tag: Int): Int = fields[tag]
+
+    fun groupBit(tag: Int): Int = groups[tag].let { if (it < 0) it else fields.size + it }
+
+    fun mask(fieldTags: Collection<Int>, groupTags: Collection<Int>): PresenceMask {
+        val bitmap = LongArray(words)
+        fieldTags.forEach { bitmap.set(fieldBit(it)) }
+        groupTags.forEach { bitmap.set(groupBit(it)) }
+        val nonZero = bitmap.indices.filter { bitmap[it] != 0L }
+        return PresenceMask(nonZero.toIntArray(), LongArray(nonZero.size) { bitmap[nonZero[it]] })
+    }
+
+    fun scan(message: FieldMap): LongArray {
+        val bitmap = LongArray(words)
+
+        for (field in message) {
+            val bit = fields[field.tag]
+            if (bit >= 0) bitmap.set(bit)
+        }
+
+        for ((tag, entries) in message.groups) {
+            if (entries.isEmpty()) continue
+            val bit = groupBit(tag)
+            if (bit >= 0) bitmap.set(bit)
+        }
+
+        return bitmap
+    }
+}
+
+internal class PresenceMask(private val words: IntArray, private val bits: LongArray) {
+    fun intersects(bitmap: LongArray): Boolean {
+        for (index in words.indices) {
+            if (bitmap[words[index]] and bits[index] != 0L) return true
+        }
+
+        return false
+    }
+}
+
+internal fun LongArray.isSet(bit: Int): Boolean = bit >= 0 && this[bit ushr 6] and (1L shl bit) != 0L
+
+private fun LongArray.set(bit: Int) {
+    if (bit >= 0) this[bit ushr 6] = this[bit ushr 6] or (1L shl bit)
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import com.exactpro.th2.codec.fix.orchestra.Projection
+
+private const val PATH_SEPARATOR = '.'
+
+class ProjectedDecoder(val decoder: TieredDecoder, val validate: Boolean)
+
+/**
+ * Projections of a message by scenario
+ */
+class MessageProjections(private val default: ProjectedDecoder?, private val scenarios: Map<String, ProjectedDecoder>) {
+    operator fun get(scenario: String): ProjectedDecoder? = scenarios[scenario] ?: default
+}
+
+fun FixMessage.toProjections(
+    projections: List<Projection>,
+    compileThreshold: Int,
+    internTables: Map<String, ValueInternTable> = emptyMap(),
+): MessageProjections {
+    fun Projection.toDecoder() = ProjectedDecoder(TieredDecoder(project(fields), compileThreshold, internTables), validate)
+
+    val (scenarios, defaults) = projections.partition { it.scenario != null }
+    require(defaults.size <= 1) { "More than one projection without scenario for message: $name" }
+
+    return MessageProjections(
+        defaults.singleOrNull()?.toDecoder(),
+        scenarios.associate { projection ->
+            checkNotNull(projection.scenario) to projection.toDecoder()
+        }.also { require(it.size == scenarios.size) { "More than one projection for the same scenario of message: $name" } }
+    )
+}
+
+/**
+ * Returns the structure with the body limited to the [paths]. A path selecting a component or a group selects all its fields
+ */
+fun FixMessage.project(paths: Collection<String>): FixMessage {
+    require(paths.isNotEmpty()) { "No fields in projection of message: $name" }
+    return copy(body = body.project(paths.map { it.split(PATH_SEPARATOR) }, name))
+}
+
+private fun Map<String, FixField>.project(paths: List<List<String>>, path: String): Map<String, FixField> {
+    val selection = paths.groupBy({ it.first() }, { it.drop(1) })
+
+    selection.keys.forEach { name ->
+        require(name in this) { "Unknown field in projection: $path.$name" }
+    }
+
+    return filterKeys(selection::containsKey).mapValues { (name, field) ->
+        val nested = selection.getValue(name)
+
+        when {
+            nested.any(List<String>::isEmpty) -> field
+            field.isField -> throw IllegalArgumentException("Field $path.$name has no nested fields")
+            else -> field.copy(fields = field.fields.project(nested, "$path.$name"))
+        }
+    }
+}
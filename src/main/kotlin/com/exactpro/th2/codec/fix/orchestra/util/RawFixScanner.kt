@@ -0,0 +1,215 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import com.google.protobuf.ByteString
+import quickfix.field.BeginString
+import quickfix.field.BodyLength
+import quickfix.field.CheckSum
+import quickfix.field.MsgType
+import kotlin.text.Charsets.UTF_8
+import quickfix.Message.Header as QuickfixHeader
+
+internal const val SOH: Byte = 1
+private const val EQUALS: Byte = '='.code.toByte()
+
+/**
+ * Extracts the standard header of a raw FIX message without parsing its body.
+ * The message is scanned up to the first tag which does not belong to the [header],
+ * so the cost of the scan does not depend on the size of the body
+ */
+class RawFixScanner(header: Map<String, FixField>, private val delimiter: Byte = SOH) {
+    private val fields: TagIndex
+    private val groups: TagIndex
+    private val lengths: TagIndex
+
+    init {
+        val fieldTags = mutableListOf(BeginString.FIELD, BodyLength.FIELD, MsgType.FIELD)
+        val groupTags = mutableListOf<Int>()
+        header.collectPresenceTags(fieldTags, groupTags)
+        fields = TagIndex(fieldTags.distinct())
+        groups = TagIndex(groupTags.distinct())
+        lengths = TagIndex(header.collectLengthTags(mutableListOf()))
+    }
+
+    /**
+     * Returns the header fields of the [message] or `null` if the header cannot be scanned:
+     * the message is malformed or its header has repeating groups
+     */
+    fun scan(message: ByteString): QuickfixHeader? {
+        val header = QuickfixHeader()
+        val cursor = FieldCursor(message, delimiter)
+        var length = -1
+
+        while (cursor.next(length)) {
+            val tag = cursor.tag
+
+            if (fields[tag] < 0) {
+                return if (groups[tag] < 0) header else null
+            }
+
+            val value = cursor.value
+            length = if (lengths[tag] >= 0) value.toIntOrNull() ?: return null else -1
+            header.setString(tag, value)
+        }
+
+        return null
+    }
+
+}
+
+/**
+ * Returns MsgType of the raw message without scanning the fields following it
+ */
+fun ByteString.peekMsgType(delimiter: Byte = SOH): String? = peekPrefix(delimiter)?.getString(MsgType.FIELD)
+
+/**
+ * Returns BeginString, BodyLength and MsgType of the raw message or `null` if they cannot be read
+ */
+fun ByteString.peekPrefix(delimiter: Byte = SOH): QuickfixHeader? {
+    val header = QuickfixHeader()
+    return if (FieldCursor(this, delimiter).readPrefix(header)) header else null
+}
+
+/**
+ * Collects the tags of length fields preceding data fields, [BodyLength] is not included
+ */
+internal fun Map<String, FixField>.collectLengthTags(tags: MutableList<Int>): MutableList<Int> = tags.apply {
+    for (field in values) {
+        when {
+            field.isField && field.type == "Length" && field.tag != BodyLength.FIELD -> add(field.tag)
+            field.isComponent -> field.fields.collectLengthTags(tags)
+        }
+    }
+}
+
+/**
+ * Iterates `tag=value` fields of a raw FIX message without copying it
+ */
+internal class FieldCursor(private val message: ByteString, private val delimiter: Byte = SOH) {
+    private val size = message.size()
+
+    /**
+     * Offset of the current field
+     */
+    var fieldStart: Int = 0
+        private set
+
+    /**
+     * Offset of the next field
+     */
+    var offset: Int = 0
+        private set
+
+    var tag: Int = 0
+        private set
+
+    /**
+     * Whether the cursor is at a field, it is `false` after the last field or a malformed one
+     */
+    var hasField: Boolean = false
+        private set
+
+    private var bodyStart = -1
+    private var bodyLength = -1
+
+    private var valueStart = 0
+    private var valueEnd = 0
+
+    val value: String
+        get() = message.substring(valueStart, valueEnd).toString(UTF_8)
+
+    /**
+     * Moves to the next field, its value is read by the [length] if it is not negative.
+     * Returns `false` if there are no more fields or the message is malformed
+     */
+    fun next(length: Int = -1): Boolean {
+        hasField = false
+        if (offset >= size) return false
+
+        var tag = 0
+        var index = offset
+
+        while (index < size) {
+            val byte = message.byteAt(index)
+            if (byte == EQUALS) break
+            if (byte < '0'.code || byte > '9'.code) return false
+            tag = tag * 10 + (byte - '0'.code)
+            index++
+        }
+
+        if (index == offset || index == size) return false
+
+        val start = index + 1
+        val end = when {
+            length >= 0 -> (start + length).takeIf { it < size && message.byteAt(it) == delimiter } ?: return false
+            else -> message.indexOf(delimiter, start).takeIf { it >= 0 } ?: return false
+        }
+
+        this.fieldStart = offset
+        this.tag = tag
+        this.valueStart = start
+        this.valueEnd = end
+        this.offset = end + 1
+        this.hasField = true
+
+        return true
+    }
+
+    /**
+     * Reads BeginString, BodyLength and MsgType which must be the first fields of a message into the [header].
+     * Returns `false` if the message does not start with them
+     */
+    fun readPrefix(header: QuickfixHeader): Boolean {
+        if (!next() || tag != BeginString.FIELD) return false
+        header.setString(BeginString.FIELD, value)
+        if (!next() || tag != BodyLength.FIELD) return false
+        bodyLength = value.toIntOrNull() ?: return false
+        bodyStart = offset
+        if (!next() || tag != MsgType.FIELD) return false
+        header.setString(MsgType.FIELD, value)
+        return true
+    }
+
+    /**
+     * Checks that the current field is the last one and it is a CheckSum matching the message
+     * and that the body length read by [readPrefix] is correct
+     */
+    fun isValidTrailer(): Boolean = tag == CheckSum.FIELD
+            && fieldStart - bodyStart == bodyLength
+            && offset == size
+            && valueEnd - valueStart == 3
+            && value.toIntOrNull() == checksum()
+
+    /**
+     * Returns the FIX checksum of the bytes preceding the current field
+     */
+    private fun checksum(): Int {
+        var sum = 0
+        for (index in 0 until fieldStart) sum += message.byteAt(index).toInt() and 0xFF
+        return sum and 0xFF
+    }
+
+    private fun ByteString.indexOf(byte: Byte, from: Int): Int {
+        for (index in from until size) {
+            if (byteAt(index) == byte) return index
+        }
+
+        return -1
+    }
+}
@@ -23,26 +23,48 @@ import io.fixprotocol._2020.orchestra.repository.FieldRefType
 import io.fixprotocol._2020.orchestra.repository.FieldType
 import io.fixprotocol._2020.orchestra.repository.GroupRefType
 import io.fixprotocol._2020.orchestra.repository.GroupType
+import io.fixprotocol._2020.orchestra.repository.MessageType
+import io.fixprotocol._2020.orchestra.repository.PresenceT.FORBIDDEN
 import io.fixprotocol._2020.orchestra.repository.PresenceT.REQUIRED
 import io.fixprotocol._2020.orchestra.repository.Repository
 import java.io.InputStream
 import java.math.BigInteger
-import java.util.concurrent.ConcurrentHashMap
+import java.util.Collections
+import java.util.IdentityHashMap
+import java.util.Objects
+import java.util.WeakHashMap
 import javax.xml.bind.JAXBContext
+import kotlin.LazyThreadSafetyMode.PUBLICATION
 
-private val CODE_SETS = ConcurrentHashMap<String, CodeSetType?>()
-private val FIELDS = ConcurrentHashMap<BigInteger, FieldType>()
-private val COMPONENTS = ConcurrentHashMap<BigInteger, ComponentType>()
-private val GROUPS = ConcurrentHashMap<BigInteger, GroupType>()
+// reversed values are shared by fields with equal values, e.g. by fields of the same code set
+private val REVERSED_VALUES: MutableMap<Map<String, String>, Map<String, String>> = Collections.synchronizedMap(WeakHashMap())
 
 const val HEADER_COMPONENT = "StandardHeader"
 const val HEADER_FIELD = "header"
 const val TRAILER_COMPONENT = "StandardTrailer"
 const val TRAILER_FIELD = "trailer"
 
+// the most specific versions go first
+private val APPL_VER_IDS = listOf(
+    "FIX.5.0SP2" to "9",
+    "FIX.5.0SP1" to "8",
+    "FIX.5.0" to "7",
+    "FIX.4.4" to "6",
+    "FIX.4.3" to "5",
+    "FIX.4.2" to "4",
+    "FIX.4.1" to "3",
+    "FIX.4.0" to "2",
+)
+
 val Repository.beginString: String
     get() = if (version.startsWith("FIX.5")) "FIXT.1.1" else version
 
+/**
+ * ApplVerID of the repository version or `null` if the version is not known
+ */
+val Repository.applVerId: String?
+    get() = APPL_VER_IDS.firstOrNull { (prefix, _) -> version.startsWith(prefix) }?.second
+
 fun InputStream.loadRepository(): Repository {
     val context = JAXBContext.newInstance(Repository::class.java)
     return context.createUnmarshaller().unmarshal(this) as Repository
@@ -67,13 +89,100 @@ data class FixField(
     val fields: Map<String, FixField> = mapOf(),
     val values: Map<String, String> = mapOf(),
     val isRequired: Boolean = false,
+    val isForbidden: Boolean = false,
+    val hasRules: Boolean = false,
     val isField: Boolean = false,
     val isGroup: Boolean = false,
     val isComponent: Boolean = false,
 ) {
-    val fieldOrder: IntArray = fields.getFieldOrder().toList().toIntArray()
+    // trees are built bottom-up, so the hash of every child is already computed and the tree is not traversed again
+    private val hash: Int = Objects.hash(name, tag, type, fields, values, isRequired, isForbidden, hasRules, isField, isGroup, isComponent)
+
+    val fieldOrder: IntArray by lazy(PUBLICATION) { fields.getFieldOrder().toList().toIntArray() }
     val isEnum: Boolean = values.isNotEmpty()
-    val reversedValues: Map<String, String> = values.entries.associate { (key, value) -> value to key }
+    val reversedValues: Map<String, String> by lazy(PUBLICATION) {
+        REVERSED_VALUES.getOrPut(values) { values.entries.associate { (key, value) -> value to key } }
+    }
+
+    /**
+     * Tags of the fields and the groups which make a component present
+     */
+    internal val presenceTags: Pair<IntArray, IntArray> by lazy(PUBLICATION) {
+        val fieldTags = mutableListOf<Int>()
+        val groupTags = mutableListOf<Int>()
+        fields.collectPresenceTags(fieldTags, groupTags)
+        fieldTags.toIntArray() to groupTags.toIntArray()
+    }
+
+    override fun hashCode(): Int = hash
+}
+
+/**
+ * Collects the tags which define presence of fields and components of a field map
+ */
+internal fun Map<String, FixField>.collectPresenceTags(fieldTags: MutableCollection<Int>, groupTags: MutableCollection<Int>) {
+    for (field in values) {
+        when {
+            field.isField -> fieldTags += field.tag
+            field.isGroup -> groupTags += field.tag
+            else -> field.fields.collectPresenceTags(fieldTags, groupTags)
+        }
+    }
+}
+
+/**
+ * Estimates the heap retained by message structures. Shared subtrees, maps and strings are counted once,
+ * sizes of objects are approximated for a 64-bit JVM with compressed references
+ */
+fun Map<String, FixMessage>.estimateRetainedSize(): Long = RetainedSizeEstimator().apply { values.forEach(::add) }.size
+
+private class RetainedSizeEstimator {
+    private val visited: MutableSet<Any> = Collections.newSetFromMap(IdentityHashMap())
+
+    var size = 0L
+        private set
+
+    fun add(message: FixMessage) {
+        size += MESSAGE_SIZE
+        add(message.name)
+        add(message.type)
+        add(message.header)
+        add(message.body)
+        add(message.trailer)
+        listOf(message.headerFieldOrder, message.bodyFieldOrder, message.trailerFieldOrder).forEach { size += ARRAY_SIZE + Int.SIZE_BYTES * it.size }
+    }
+
+    // lazily computed field orders and reversed values are not counted, only fields used by codecs have them
+    private fun add(field: FixField) {
+        if (!visited.add(field)) return
+        size += FIELD_SIZE
+        add(field.name)
+        field.type?.let(::add)
+        add(field.fields)
+        if (visited.add(field.values)) {
+            size += MAP_SIZE + MAP_ENTRY_SIZE * field.values.size
+            field.values.forEach { (name, value) -> add(name); add(value) }
+        }
+    }
+
+    private fun add(fields: Map<String, FixField>) {
+        if (!visited.add(fields)) return
+        size += MAP_SIZE + MAP_ENTRY_SIZE * fields.size
+        fields.forEach { (name, field) -> add(name); add(field) }
+    }
+
+    private fun add(value: String) {
+        if (visited.add(value)) size += STRING_SIZE + value.length
+    }
+
+    private companion object {
+        const val MESSAGE_SIZE = 40L
+        const val FIELD_SIZE = 48L
+        const val MAP_SIZE = 64L
+        const val MAP_ENTRY_SIZE = 40L
+        const val STRING_SIZE = 40L
+        const val ARRAY_SIZE = 16L
+    }
 }
 
 fun Map<String, FixField>.getFieldOrder(): Sequence<Int> = sequence {
@@ -83,109 +192,168 @@ fun Map<String, FixField>.getFieldOrder(): Sequence<Int> = sequence {
     }
 }
 
-fun Repository.toField(reference: FieldRefType): FixField {
-    val field = FIELDS.computeIfAbsent(reference.id) { id ->
-        fields.field.single { id == it.id }
-    }
-
-    val codeSet = CODE_SETS.computeIfAbsent(field.type) { type ->
-        codeSets.codeSet.find { it.name == type }
-    }
+/**
+ * Interned [FixField] trees. Loads sharing a pool share identical subtrees, e.g. the components
+ * which are the same in several repositories. Children are interned before their parent, so comparing a parent
+ * with the pooled one only compares the identities of the children. The pool is not thread-safe
+ */
+class FixFieldPool {
+    private val fields = HashMap<FixField, FixField>()
 
-    return FixField(
-        name = field.name,
-        tag = field.id.toInt(),
-        type = codeSet?.type ?: field.type,
-        values = codeSet?.code?.associate { it.name to it.value } ?: mapOf(),
-        isRequired = reference.presence == REQUIRED,
-        isField = true
-    )
+    fun intern(field: FixField): FixField = fields.putIfAbsent(field, field) ?: field
 }
 
-fun Repository.toField(reference: ComponentRefType, inlineComponents: Boolean): Collection<FixField> {
-    val component = COMPONENTS.computeIfAbsent(reference.id) { id ->
-        components.component.single { id == it.id }
+/**
+ * Builds [FixField] trees of a repository. Repository elements are indexed once per load and identical subtrees are
+ * interned, so a component referenced by many messages with the same presence is a single instance shared by all of them
+ */
+private class StructureLoader(
+    private val repository: Repository,
+    private val inlineComponents: Boolean,
+    private val pool: FixFieldPool,
+) {
+    private val fieldsById = repository.fields.field.associateBy(FieldType::getId)
+    private val componentsById = repository.components.component.associateBy(ComponentType::getId)
+    private val groupsById = repository.groups.group.associateBy(GroupType::getId)
+    private val codeSetsByName = repository.codeSets.codeSet.associateBy(CodeSetType::getName)
+    // fields of the same code set share their values
+    private val valuesByCodeSet = HashMap<String, Map<String, String>>()
+    private val componentFields = HashMap<BigInteger, Map<String, FixField>>()
+    private val groupFields = HashMap<BigInteger, Map<String, FixField>>()
+    private fun intern(field: FixField): FixField = pool.intern(field)
+
+    private fun <K, V> Map<K, V>.require(key: K, kind: String): V = requireNotNull(get(key)) { "No $kind with id: $key" }
+
+    fun toField(reference: FieldRefType): FixField {
+        val field = fieldsById.require(reference.id, "field")
+        val codeSet = codeSetsByName[field.type]
+
+        return intern(FixField(
+            name = field.name,
+            tag = field.id.toInt(),
+            type = codeSet?.type ?: field.type,
+            values = codeSet?.let { valuesByCodeSet.getOrPut(it.name) { it.code.associate { code -> code.name to code.value } } } ?: mapOf(),
+            isRequired = reference.presence == REQUIRED,
+            isForbidden = reference.presence == FORBIDDEN,
+            hasRules = reference.rule.isNotEmpty(),
+            isField = true
+        ))
     }
 
-    val ignoreInline = component.run { name == HEADER_COMPONENT || name == TRAILER_COMPONENT }
+    fun toField(reference: ComponentRefType): Collection<FixField> {
+        val component = componentsById.require(reference.id, "component")
 
-    val fields = toFieldMap(component.componentRefOrGroupRefOrFieldRef, inlineComponents)
+        val ignoreInline = component.run { name == HEADER_COMPONENT || name == TRAILER_COMPONENT }
 
-    return if (inlineComponents && !ignoreInline) {
-        fields.values
-    } else {
-        listOf(
-            FixField(
-                name = component.name,
-                isRequired = reference.presence == REQUIRED && fields.values.any(FixField::isRequired),
-                isComponent = true,
-                fields = fields
+        val fields = componentFields.getOrPut(component.id) { toFieldMap(component.componentRefOrGroupRefOrFieldRef) }
+
+        return if (inlineComponents && !ignoreInline) {
+            fields.values
+        } else {
+            listOf(
+                intern(FixField(
+                    name = component.name,
+                    isRequired = reference.presence == REQUIRED && fields.values.any(FixField::isRequired),
+                    isForbidden = reference.presence == FORBIDDEN,
+                    isComponent = true,
+                    fields = fields
+                ))
             )
-        )
+        }
     }
-}
 
-fun Repository.toField(reference: GroupRefType, inlineComponents: Boolean): FixField {
-    val group = GROUPS.computeIfAbsent(reference.id) { id ->
-        groups.group.single { id == it.id }
+    fun toField(reference: GroupRefType): FixField {
+        val group = groupsById.require(reference.id, "group")
+        val counter = fieldsById.require(group.numInGroup.id, "field")
+
+        val field = intern(FixField(
+            name = counter.name,
+            tag = counter.id.toInt(),
+            isRequired = reference.presence == REQUIRED,
+            isForbidden = reference.presence == FORBIDDEN,
+            isGroup = true,
+            fields = groupFields.getOrPut(group.id) { toFieldMap(group.componentRefOrGroupRefOrFieldRef) }
+        ))
+        if (inlineComponents) {
+            return field
+        }
+
+        return intern(FixField(
+            name = group.name,
+            isRequired = reference.presence == REQUIRED,
+            isForbidden = reference.presence == FORBIDDEN,
+            isComponent = true,
+            fields = mapOf(field.name to field)
+        ))
     }
 
-    val counter = FIELDS.computeIfAbsent(group.numInGroup.id) { id ->
-        fields.field.single { id == it.id }
+    fun toField(value: Any): Collection<FixField> = when (value) {
+        is FieldRefType -> listOf(toField(value))
+        is GroupRefType -> listOf(toField(value))
+        is ComponentRefType -> toField(value)
+        else -> error("Cannot convert to field: $this")
     }
 
-    val field = FixField(
-        name = counter.name,
-        tag = counter.id.toInt(),
-        isRequired = reference.presence == REQUIRED,
-        isGroup = true,
-        fields = toFieldMap(group.componentRefOrGroupRefOrFieldRef, inlineComponents)
-    )
-    if (inlineComponents) {
-        return field
+    fun toFieldMap(references: List<Any>): Map<String, FixField> {
+        return references.asSequence()
+            .flatMap(::toField)
+            .associateBy(FixField::name)
     }
 
-    return FixField(
-        name = group.name,
-        isRequired = reference.presence == REQUIRED,
-        isComponent = true,
-        fields = mapOf(field.name to field)
-    )
-}
+    fun loadMessageStructures(): Map<String, FixMessage> {
+        val messageFields = LinkedHashMap<String, MutableMap<String, FixField>>()
+        val messageTypes = HashMap<String, String>()
 
-fun Repository.toField(value: Any, inlineComponents: Boolean): Collection<FixField> = when (value) {
-    is FieldRefType -> listOf(toField(value))
-    is GroupRefType -> listOf(toField(value, inlineComponents))
-    is ComponentRefType -> toField(value, inlineComponents)
-    else -> error("Cannot convert to field: $this")
-}
+        repository.messages.message.forEach { message ->
+            val fields = messageFields.getOrPut(message.name, ::LinkedHashMap)
+            messageTypes.putIfAbsent(message.name, message.msgType)
 
-fun Repository.toFieldMap(references: List<Any>, inlineComponents: Boolean): Map<String, FixField> {
-    return references.asSequence()
-        .flatMap { toField(it, inlineComponents) }
-        .associateBy(FixField::name)
-}
+            message.structure
+                .componentRefOrGroupRefOrFieldRef
+                .asSequence()
+                .flatMap(::toField)
+                .associateByTo(fields, FixField::name)
+        }
 
-fun Repository.loadMessageStructures(inlineComponents: Boolean): Map<String, FixMessage> {
-    val messageFields = HashMap<String, MutableMap<String, FixField>>()
+        return messageFields.mapValues { (name, fields) -> fields.toFixMessage(name, messageTypes.getValue(name)) }
+    }
 
-    messages.message.forEach { message ->
-        val fields = messageFields.getOrPut(message.name, ::LinkedHashMap)
+    fun loadScenarioStructures(): Map<String, Map<String, FixMessage>> = repository.messages.message
+        .groupBy(MessageType::getName)
+        .mapValues { (_, messages) -> messages.associate { it.scenario to loadMessageStructure(it) } }
 
-        message.structure
+    fun loadMessageStructure(message: MessageType): FixMessage {
+        val fields = message.structure
             .componentRefOrGroupRefOrFieldRef
             .asSequence()
-            .flatMap { toField(it, inlineComponents) }
-            .associateByTo(fields, FixField::name)
-    }
+            .flatMap(::toField)
+            .associateByTo(LinkedHashMap(), FixField::name)
 
-    return messageFields.mapValues { (name, fields) ->
-        FixMessage(
-            name = name,
-            type = messages.message.first { it.name == name }.msgType,
-            header = fields.remove(HEADER_COMPONENT)?.fields ?: error("No header in message: $name"),
-            trailer = fields.remove(TRAILER_COMPONENT)?.fields ?: error("No trailer in message: $name"),
-            body = fields
-        )
+        return fields.toFixMessage(message.name, message.msgType ?: repository.messages.message.first { it.name == message.name }.msgType)
     }
-}
\ No newline at end of file
+}
+
+fun Repository.loadMessageStructures(
+    inlineComponents: Boolean,
+    pool: FixFieldPool = FixFieldPool(),
+): Map<String, FixMessage> = StructureLoader(this, inlineComponents, pool).loadMessageStructures()
+
+/**
+ * Loads the structures of all scenarios of every message by message name and scenario
+ */
+fun Repository.loadScenarioStructures(inlineComponents: Boolean): Map<String, Map<String, FixMessage>> =
+    StructureLoader(this, inlineComponents, FixFieldPool()).loadScenarioStructures()
+
+/**
+ * Loads the structure of the [message] for its scenario only unlike [loadMessageStructures]
+ * which merges fields of all scenarios of a message
+ */
+fun Repository.loadMessageStructure(message: MessageType, inlineComponents: Boolean): FixMessage = StructureLoader(this, inlineComponents, FixFieldPool()).loadMessageStructure(message)
+
+private fun MutableMap<String, FixField>.toFixMessage(name: String, type: String) = FixMessage(
+    name = name,
+    type = type,
+    header = remove(HEADER_COMPONENT)?.fields ?: error("No header in message: $name"),
+    trailer = remove(TRAILER_COMPONENT)?.fields ?: error("No trailer in message: $name"),
+    body = this
+)
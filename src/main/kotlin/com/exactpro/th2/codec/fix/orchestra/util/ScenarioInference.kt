@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import quickfix.FieldMap
+
+private const val ABSENT: Byte = 0
+private const val OPTIONAL: Byte = 1
+private const val REQUIRED: Byte = 2
+private const val FORBIDDEN: Byte = 3
+
+/**
+ * Scenario chosen by [ScenarioInference]. [candidates] scenarios have the fewest [mismatches] with the message,
+ * the [scenario] is one of them
+ */
+data class InferredScenario(val scenario: String, val candidates: Int, val mismatches: Int) {
+    val isAmbiguous: Boolean
+        get() = candidates > 1
+}
+
+/**
+ * Infers scenarios of messages which do not set it. For every message with several scenarios the fields of the body
+ * which distinguish them are precomputed: presence (absent, optional, required or forbidden) and the codes allowed by the code set.
+ * A message is checked against all scenarios in one pass over these fields and the scenario with the fewest mismatches wins.
+ * Of equally matching scenarios the [defaultScenario] is preferred, then the first one in the repository
+ */
+class ScenarioInference(structures: Map<String, Map<String, FixMessage>>, private val defaultScenario: String) {
+    private val discriminators = structures.filterValues { it.size > 1 }.mapValues { (_, scenarios) -> Discriminators(scenarios) }
+
+    /**
+     * Returns the scenario of the message or `null` if the message has a single scenario
+     */
+    fun infer(name: String, message: FieldMap): InferredScenario? = discriminators[name]?.infer(message)
+
+    private inner class Discriminators(structures: Map<String, FixMessage>) {
+        private val scenarios = structures.keys.toTypedArray()
+        private val default = scenarios.indexOf(defaultScenario)
+        private val tags: IntArray
+        private val states: Array<ByteArray>
+        private val codes: Array<Array<Set<String>?>>
+
+        init {
+            val sets = HashMap<Map<String, String>, Set<String>>()
+            val features = structures.values.map { structure -> HashMap<Int, Feature>().also { structure.body.collect(REQUIRED, it, sets) } }
+            // a field distinguishes scenarios if its presence or codes are not the same in all of them
+            val discriminating = features.flatMapTo(sortedSetOf()) { it.keys }.filter { tag ->
+                features.map { it[tag] ?: Feature.NONE }.distinct().size > 1
+            }
+
+            tags = discriminating.toIntArray()
+            states = Array(tags.size) { index -> ByteArray(scenarios.size) { features[it][tags[index]]?.state ?: ABSENT } }
+            codes = Array(tags.size) { index -> Array(scenarios.size) { features[it][tags[index]]?.codes } }
+        }
+
+        fun infer(message: FieldMap): InferredScenario {
+            val mismatches = IntArray(scenarios.size)
+
+            for (index in tags.indices) {
+                val tag = tags[index]
+                val value = if (message.isSetField(tag)) message.getString(tag) else null
+                val states = states[index]
+                val codes = codes[index]
+
+                for (scenario in scenarios.indices) {
+                    val matches = when (states[scenario]) {
+                        ABSENT, FORBIDDEN -> value == null
+                        REQUIRED -> value != null && codes[scenario]?.contains(value) != false
+                        else -> value == null || codes[scenario]?.contains(value) != false
+                    }
+                    if (!matches) mismatches[scenario]++
+                }
+            }
+
+            val fewest = mismatches.minOrNull() ?: 0
+            val candidates = mismatches.count { it == fewest }
+            val chosen = if (default >= 0 && mismatches[default] == fewest) default else mismatches.indexOf(fewest)
+            return InferredScenario(scenarios[chosen], candidates, fewest)
+        }
+    }
+
+    private data class Feature(val state: Byte, val codes: Set<String>?) {
+        companion object {
+            val NONE = Feature(ABSENT, null)
+        }
+    }
+
+    private companion object {
+        /**
+         * Collects the fields reachable without entering groups, a field is required only if all its components are required.
+         * Fields of groups are not collected, the counter of a group is
+         */
+        fun Map<String, FixField>.collect(presence: Byte, features: MutableMap<Int, Feature>, sets: MutableMap<Map<String, String>, Set<String>>) {
+            for (field in values) {
+                val state = when {
+                    presence == FORBIDDEN || field.isForbidden -> FORBIDDEN
+                    presence == REQUIRED && field.isRequired -> REQUIRED
+                    else -> OPTIONAL
+                }
+                when {
+                    field.isComponent -> field.fields.collect(state, features, sets)
+                    else -> features.putIfAbsent(field.tag, Feature(state, if (field.isEnum) sets.getOrPut(field.values) { field.values.values.toSet() } else null))
+                }
+            }
+        }
+    }
+}
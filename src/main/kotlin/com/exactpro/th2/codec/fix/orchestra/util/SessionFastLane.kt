@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import com.google.protobuf.ByteString
+import quickfix.field.CheckSum
+import quickfix.field.MsgType
+import quickfix.FieldMap
+import quickfix.Message as QuickfixMessage
+
+/**
+ * Decodes session level messages straight from the raw bytes. The fields are distributed between the header, the body and the trailer
+ * by precomputed tag indexes and decoded by eagerly compiled decoders, so neither QuickFIX/J parsing nor Orchestra validation is performed.
+ * The body length and the checksum are verified by the lane itself
+ */
+class SessionFastLane(
+    structures: Collection<FixMessage>,
+    internTables: Map<String, ValueInternTable> = emptyMap(),
+    private val delimiter: Byte = SOH,
+) {
+    private class Lane(structure: FixMessage, internTables: Map<String, ValueInternTable>) {
+        val decoder = CompiledDecoder(structure, internTables)
+        val header = structure.header.fieldIndex()
+        val body = structure.body.fieldIndex()
+        val trailer = structure.trailer.fieldIndex()
+        val lengths = TagIndex(listOf(structure.header, structure.body, structure.trailer).flatMap { it.collectLengthTags(mutableListOf()) }.distinct())
+    }
+
+    private val lanes = structures.associate { it.type to Lane(it, internTables) }
+
+    /**
+     * Returns the decoded [message] or `null` if the message is not a session one or it has to be decoded by the regular path:
+     * it has repeating groups, unknown or duplicated tags, or it is malformed
+     */
+    fun decode(message: ByteString): DecodeResult? {
+        val cursor = FieldCursor(message, delimiter)
+        val parsed = QuickfixMessage()
+
+        if (!cursor.readPrefix(parsed.header)) return null
+        val lane = lanes[parsed.header.getString(MsgType.FIELD)] ?: return null
+
+        var length = -1
+
+        while (cursor.next(length)) {
+            val tag = cursor.tag
+            val value = cursor.value
+
+            if (tag == CheckSum.FIELD) {
+                if (!cursor.isValidTrailer()) return null
+                parsed.trailer.setString(tag, value)
+                return lane.decoder.decode(parsed)
+            }
+
+            val target: FieldMap = when {
+                lane.body[tag] >= 0 -> parsed
+                lane.header[tag] >= 0 -> parsed.header
+                lane.trailer[tag] >= 0 -> parsed.trailer
+                else -> return null
+            }
+
+            if (target.isSetField(tag)) return null
+            length = if (lane.lengths[tag] >= 0) value.toIntOrNull() ?: return null else -1
+            target.setString(tag, value)
+        }
+
+        return null
+    }
+
+    private companion object {
+        /**
+         * Index of the tags of the fields reachable without entering groups, the fields of groups are not indexed
+         * so messages with groups fall back to the regular path
+         */
+        fun Map<String, FixField>.fieldIndex(): TagIndex = TagIndex(mutableListOf<Int>().also { collectPresenceTags(it, mutableListOf()) }.distinct())
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import com.exactpro.th2.codec.fix.orchestra.validator.TestExceptionImpl
+import com.exactpro.th2.codec.fix.orchestra.validator.ValidatorQfj
+import com.exactpro.th2.common.grpc.ListValue
+import com.exactpro.th2.common.grpc.Message
+import com.exactpro.th2.common.grpc.Message.Builder
+import com.exactpro.th2.common.grpc.Value
+import com.google.protobuf.ByteString
+import quickfix.Group
+import quickfix.field.CheckSum
+import quickfix.field.MsgType
+import quickfix.Message as QuickfixMessage
+
+/**
+ * Decodes messages with a large repeating group without materializing the group.
+ * The message is parsed from the raw bytes without the entries of the group, then the entries are scanned once more
+ * and each of them is validated and decoded as soon as it is read into a single reused group.
+ * Extra memory does not depend on the number of the entries, only the decoded entries are kept
+ */
+class StreamingDecoder(
+    val structure: FixMessage,
+    groupPath: String,
+    internTables: Map<String, ValueInternTable> = emptyMap(),
+    private val delimiter: Byte = SOH,
+) {
+    private val path = groupPath.split('.')
+    private val fullPath = "${structure.name}.$groupPath"
+    private val group = structure.body.find(path)
+    private val isRequired = structure.body.isRequired(path)
+    private val stripped = structure.body.strip(path)
+    private val decoder = CompiledDecoder(structure.copy(body = stripped), internTables)
+    private val entryDecoder = CompiledEntryDecoder(group, internTables)
+    private val streamed = GroupParser(group)
+    private val header = FieldMapParser(structure.header)
+    private val body = FieldMapParser(stripped)
+    private val trailer = FieldMapParser(structure.trailer)
+    private val lengths = TagIndex(structure.run { header + body + trailer }.collectAllLengthTags(mutableListOf()).distinct())
+
+    val groupTag: Int
+        get() = group.tag
+
+    /**
+     * Returns the decoded [message] or `null` if it cannot be streamed and has to be decoded by the regular path:
+     * it is malformed, has unknown or duplicated tags or a counter of a not streamed group or of a group nested in the streamed entries
+     * does not match its entries.
+     * The message is validated in a session started by [validation] if it is set. Validation failures are thrown,
+     * while other errors of the validator stop the validation and are returned in [StreamedResult.validationError]
+     */
+    fun decode(message: ByteString, validation: ((QuickfixMessage) -> ValidatorQfj.Session)?): StreamedResult? {
+        val parsed = parse(message) ?: return null
+        val errors = mutableListOf<String>()
+        val entries = ListValue.newBuilder()
+        var validationError: Exception? = null
+        var session: ValidatorQfj.Session? = null
+
+        fun validate(always: Boolean = false, action: () -> Unit) {
+            if (validationError != null && !always) return
+
+            try {
+                action()
+            } catch (e: TestExceptionImpl) {
+                throw e
+            } catch (e: Exception) {
+                validationError = validationError ?: e
+            }
+        }
+
+        validation?.let { validate { session = it(parsed.message) } }
+
+        try {
+            if (parsed.declared >= 0) {
+                val cursor = FieldCursor(message, delimiter)
+                check(cursor.skipTo(group.tag)) { "No group $fullPath in message" }
+
+                streamed.parse(cursor, Group(group.tag, streamed.delimiter)) { entry ->
+                    session?.let { validate { it.validateEntry(entry) } }
+                    val index = entries.valuesCount
+                    entryDecoder.decodeTo(entry, entries.addValuesBuilder().messageValueBuilder, errors, "$fullPath[$index]")
+                }
+            }
+
+            session?.let { validate(action = it::finish) }
+        } finally {
+            session?.let { validate(always = true, action = it::close) }
+        }
+
+        if (parsed.declared >= 0 && parsed.declared != entries.valuesCount) {
+            errors += "Incorrect NumInGroup count at $fullPath: declared ${parsed.declared}, actual ${entries.valuesCount}"
+        }
+
+        val result = decoder.decode(parsed.message)
+
+        when {
+            entries.valuesCount > 0 -> result.message.putAt(path, Value.newBuilder().setListValue(entries).build())
+            isRequired -> errors += "Missing required field: $fullPath"
+        }
+
+        return StreamedResult(result.message, result.errors + errors, validationError)
+    }
+
+    class StreamedResult(val message: Builder, val errors: List<String>, val validationError: Exception?)
+
+    private class Parsed(val message: QuickfixMessage, val declared: Int)
+
+    /**
+     * Parses the message without the entries of the streamed group, the entries are only counted.
+     * The counter of the group is kept in the message so rules referring to it see the declared number of entries
+     */
+    private fun parse(raw: ByteString): Parsed? {
+        val cursor = FieldCursor(raw, delimiter)
+        val message = QuickfixMessage()
+        val skipped = Group(group.tag, streamed.delimiter)
+        var declared = -1
+        var length = -1
+
+        if (!cursor.readPrefix(message.header) || message.header.getString(MsgType.FIELD) != structure.type) return null
+        cursor.next()
+
+        while (cursor.hasField) {
+            val tag = cursor.tag
+            val value = cursor.value
+
+            if (tag == CheckSum.FIELD) {
+                if (!cursor.isValidTrailer()) return null
+                message.trailer.setString(tag, value)
+                return Parsed(message, declared)
+            }
+
+            if (tag == group.tag) {
+                if (declared >= 0) return null
+                declared = value.toIntOrNull() ?: return null
+                message.setInt(tag, declared)
+                if (streamed.parse(cursor, skipped) {} < 0) return null
+                continue
+            }
+
+            val (parser, target) = when {
+                body.contains(tag) -> body to message
+                header.contains(tag) -> header to message.header
+                trailer.contains(tag) -> trailer to message.trailer
+                else -> return null
+            }
+
+            val nested = parser.groups[tag]
+
+            if (nested != null) {
+                val count = value.toIntOrNull()?.takeIf { it >= 0 } ?: return null
+                if (nested.parse(cursor, null, target::addGroupRef) != count) return null
+                continue
+            }
+
+            if (target.isSetField(tag)) return null
+            length = if (parser.lengths[tag] >= 0) value.toIntOrNull() ?: return null else -1
+            target.setString(tag, value)
+            cursor.next(length)
+        }
+
+        return null
+    }
+
+    private fun FieldCursor.skipTo(tag: Int): Boolean {
+        var length = -1
+
+        while (next(length)) {
+            if (this.tag == tag) return true
+            length = if (lengths[this.tag] >= 0) value.toIntOrNull() ?: -1 else -1
+        }
+
+        return false
+    }
+
+    private companion object {
+        fun Map<String, FixField>.find(path: List<String>): FixField {
+            val field = requireNotNull(this[path.first()]) { "Unknown field ${path.first()} in streamed group path" }
+
+            if (path.size == 1) {
+                require(field.isGroup) { "Streamed field is not a group: ${field.name}" }
+                return field
+            }
+
+            require(field.isComponent) { "Streamed group must be reachable through components only: ${field.name}" }
+            return field.fields.find(path.subList(1, path.size))
+        }
+
+        fun Map<String, FixField>.isRequired(path: List<String>): Boolean {
+            val field = getValue(path.first())
+            return field.isRequired && (path.size == 1 || field.fields.isRequired(path.subList(1, path.size)))
+        }
+
+        /**
+         * Removes the group at the [path] and makes the components on the path optional
+         * as their presence is defined by the streamed entries
+         */
+        fun Map<String, FixField>.strip(path: List<String>): Map<String, FixField> = LinkedHashMap(this).apply {
+            val name = path.first()
+
+            if (path.size == 1) {
+                remove(name)
+            } else {
+                val component = getValue(name)
+                put(name, component.copy(isRequired = false, fields = component.fields.strip(path.subList(1, path.size))))
+            }
+        }
+
+        fun Map<String, FixField>.collectAllLengthTags(tags: MutableList<Int>): MutableList<Int> = tags.apply {
+            collectLengthTags(tags)
+            values.forEach { if (it.isGroup || it.isComponent) it.fields.collectAllLengthTags(tags) }
+        }
+
+        fun Builder.putAt(path: List<String>, value: Value) {
+            val name = path.first()
+
+            if (path.size == 1) {
+                putFields(name, value)
+                return
+            }
+
+            val component = fieldsMap[name]?.messageValue?.toBuilder() ?: Message.newBuilder()
+            component.putAt(path.subList(1, path.size), value)
+            putFields(name, Value.newBuilder().setMessageValue(component).build())
+        }
+    }
+}
+
+/**
+ * Parser of the raw fields of a field map: the fields reachable without entering groups and the groups
+ */
+internal class FieldMapParser(fields: Map<String, FixField>) {
+    private val fields: TagIndex
+    val groups: TagMap<GroupParser>
+    val lengths: TagIndex
+
+    init {
+        val fieldTags = mutableListOf<Int>()
+        fields.collectPresenceTags(fieldTags, mutableListOf())
+        this.fields = TagIndex(fieldTags.distinct())
+        groups = TagMap(fields.collectGroups(hashMapOf()).mapValues { GroupParser(it.value) })
+        lengths = TagIndex(fields.collectLengthTags(mutableListOf()).distinct())
+    }
+
+    fun contains(tag: Int): Boolean = fields[tag] >= 0 || tag in groups
+
+    private fun Map<String, FixField>.collectGroups(groups: MutableMap<Int, FixField>): MutableMap<Int, FixField> = groups.apply {
+        for (field in values) {
+            when {
+                field.isGroup -> put(field.tag, field)
+                field.isComponent -> field.fields.collectGroups(groups)
+            }
+        }
+    }
+}
+
+/**
+ * Parser of the raw entries of a repeating [group]. An entry starts with the delimiter field, the first field of the group,
+ * and lasts until the next delimiter or a field which does not belong to the group
+ */
+internal class GroupParser(group: FixField) {
+    private val tag = group.tag
+    val delimiter: Int = requireNotNull(group.fieldOrder.firstOrNull()) { "Group has no fields: ${group.name}" }
+    private val entry = FieldMapParser(group.fields)
+
+    /**
+     * Parses the entries following the counter field at the [cursor] and passes every entry to the [consumer].
+     * The [reuse] group is cleared and filled for every entry if it is set, otherwise every entry is a new group.
+     * Returns the number of the entries or -1 if a counter of a nested group is malformed or does not match its entries,
+     * the cursor is left at the first field after the group
+     */
+    fun parse(cursor: FieldCursor, reuse: Group?, consumer: (Group) -> Unit): Int {
+        var count = 0
+        var current: Group? = null
+        var length = -1
+
+        cursor.next()
+
+        while (cursor.hasField) {
+            val tag = cursor.tag
+
+            if (tag == delimiter) {
+                current?.let(consumer)
+                current = reuse?.apply { clear() } ?: Group(this.tag, delimiter)
+                count++
+            } else if (current == null || !entry.contains(tag) || current.isSetField(tag)) {
+                break
+            }
+
+            val nested = entry.groups[tag]
+
+            if (nested != null) {
+                val declared = cursor.value.toIntOrNull()?.takeIf { it >= 0 } ?: return -1
+                if (nested.parse(cursor, null, current::addGroupRef) != declared) return -1
+                continue
+            }
+
+            val value = cursor.value
+            length = if (entry.lengths[tag] >= 0) value.toIntOrNull() ?: -1 else -1
+            current.setString(tag, value)
+            cursor.next(length)
+        }
+
+        current?.let(consumer)
+        return count
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import com.exactpro.th2.codec.fix.orchestra.ValidationMode.ALWAYS
+import com.exactpro.th2.codec.fix.orchestra.ValidationMode.INTERVAL
+import com.exactpro.th2.codec.fix.orchestra.ValidationMode.NEVER
+import com.exactpro.th2.codec.fix.orchestra.ValidationMode.SAMPLE
+import com.exactpro.th2.codec.fix.orchestra.ValidationPolicy
+import java.util.concurrent.TimeUnit.MILLISECONDS
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Decides whether a message is validated according to the [policy].
+ * The decision is lock-free so the sampler can be shared by all threads decoding the message type
+ */
+class ValidationSampler(private val policy: ValidationPolicy, private val clock: () -> Long = System::nanoTime) {
+    private val interval = MILLISECONDS.toNanos(policy.intervalMillis)
+    private val counter = AtomicLong()
+    private val deadline = AtomicLong(clock())
+
+    init {
+        require(policy.sampleRate > 0) { "Sample rate must be positive: ${policy.sampleRate}" }
+        require(policy.intervalMillis >= 0) { "Interval must not be negative: ${policy.intervalMillis}" }
+    }
+
+    fun shouldValidate(): Boolean = when (policy.mode) {
+        ALWAYS -> true
+        NEVER -> false
+        SAMPLE -> counter.getAndIncrement() % policy.sampleRate == 0L
+        INTERVAL -> {
+            val now = clock()
+            val current = deadline.get()
+            now - current >= 0 && deadline.compareAndSet(current, now + interval)
+        }
+    }
+}
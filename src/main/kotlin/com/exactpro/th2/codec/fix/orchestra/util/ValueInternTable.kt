@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.exactpro.th2.codec.fix.orchestra.util
+
+import com.exactpro.th2.common.grpc.Value
+import java.util.concurrent.ConcurrentHashMap
+
+private val ENUM_VALUES = ConcurrentHashMap<String, Value>()
+
+/**
+ * Returns the shared [Value] of a symbolic name of a code. Values are immutable so one instance is reused by all decoded messages
+ */
+internal fun enumValue(name: String): Value = ENUM_VALUES[name] ?: ENUM_VALUES.computeIfAbsent(name) {
+    Value.newBuilder().setSimpleValue(it).build()
+}
+
+/**
+ * Bounded direct-mapped table of string [Value]s. A value replaces the previous one with the same slot,
+ * so the table keeps the most recent values of a field without any eviction bookkeeping.
+ * Slots are written without synchronization: a lost update only costs one extra allocation
+ */
+class ValueInternTable(size: Int) {
+    private val mask: Int
+    private val values: Array<Value?>
+
+    init {
+        require(size > 0) { "Intern table size must be positive: $size" }
+        mask = Integer.highestOneBit(size * 2 - 1) - 1
+        values = arrayOfNulls(mask + 1)
+    }
+
+    fun intern(value: String): Value {
+        val hash = value.hashCode()
+        val slot = (hash xor (hash ushr 16)) and mask
+        val cached = values[slot]
+
+        if (cached != null && cached.simpleValue == value) {
+            return cached
+        }
+
+        return Value.newBuilder().setSimpleValue(value).build().also { values[slot] = it }
+    }
+}
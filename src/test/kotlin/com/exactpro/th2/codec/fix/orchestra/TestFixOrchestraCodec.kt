@@ -20,10 +20,21 @@ import com.exactpro.th2.codec.ValidateException
 import com.exactpro.th2.codec.api.DictionaryAlias
 import com.exactpro.th2.codec.api.IPipelineCodecContext
 import com.exactpro.th2.codec.api.impl.ReportingContext
+import com.exactpro.th2.codec.fix.orchestra.util.CompiledEncoder
+import com.exactpro.th2.codec.fix.orchestra.util.FixField
+import com.exactpro.th2.codec.fix.orchestra.util.FixMessage
+import com.exactpro.th2.codec.fix.orchestra.util.InferredScenario
+import com.exactpro.th2.codec.fix.orchestra.util.ScenarioInference
+import com.exactpro.th2.codec.fix.orchestra.util.StreamingDecoder
+import com.exactpro.th2.codec.fix.orchestra.util.encode
+import com.exactpro.th2.codec.fix.orchestra.util.estimateRetainedSize
+import com.exactpro.th2.codec.fix.orchestra.util.loadMessageStructures
+import com.exactpro.th2.codec.fix.orchestra.util.loadRepository
 import com.exactpro.th2.common.grpc.AnyMessage
 import com.exactpro.th2.common.grpc.Message
 import com.exactpro.th2.common.grpc.MessageGroup
 import com.exactpro.th2.common.grpc.RawMessage
+import com.exactpro.th2.common.grpc.RawMessageMetadata
 import com.exactpro.th2.common.grpc.Value
 import com.exactpro.th2.common.message.get
 import com.exactpro.th2.common.message.getMessage
@@ -31,6 +42,7 @@ import com.exactpro.th2.common.message.messageType
 import com.exactpro.th2.common.schema.dictionary.DictionaryType
 import com.exactpro.th2.common.value.toValue
 import com.google.protobuf.ByteString
+import io.prometheus.client.CollectorRegistry
 import org.junit.jupiter.api.AfterAll
 import org.junit.jupiter.api.Assertions
 import org.junit.jupiter.api.assertThrows
@@ -42,15 +54,14 @@ import org.junit.jupiter.params.provider.ValueSource
 import java.io.InputStream
 import kotlin.test.assertEquals
 import kotlin.test.assertNotNull
+import quickfix.Message as QuickfixMessage
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class TestFixOrchestraCodec {
     private val factory = FixOrchestraCodecFactory().apply {
         init(object : IPipelineCodecContext {
 
-            override fun get(alias: DictionaryAlias): InputStream {
-                TODO("Not yet implemented")
-            }
+            override fun get(alias: DictionaryAlias): InputStream = get(DictionaryType.MAIN)
 
             override fun get(type: DictionaryType): InputStream {
                 return checkNotNull(TestFixOrchestraCodec::class.java.classLoader.getResourceAsStream("dict/mit_2016.xml")) {
@@ -122,6 +133,17 @@ class TestFixOrchestraCodec {
         assertEquals(listOf("Missing required field 41, expected=REQUIRED, actual=(not present)"), thrown.details)
     }
 
+    @Test
+    fun `validates with off-heap field table`() {
+        val codec = factory.create(FixOrchestraCodecSettings(offHeapFieldTable = true))
+
+        val thrown = assertThrows<ValidateException> {
+            codec.decode(rawGroup(ORDER_CANCEL_REQUEST), ReportingContext())
+        }
+        assertEquals("msgType [OrderCancelRequest], tags [41], scenario [base]", thrown.message)
+        assertEquals(listOf("Missing required field 41, expected=REQUIRED, actual=(not present)"), thrown.details)
+    }
+
     @Test
     fun `decodes incorrect message`() {
         val codec = factory.create(FixOrchestraCodecSettings())
@@ -201,6 +223,179 @@ class TestFixOrchestraCodec {
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = [true, false])
+    fun `compiled decoder produces the same message as interpreter`(inline: Boolean) {
+        val group = rawGroup(EXECUTION_REPORT)
+
+        val interpreted = factory.create(FixOrchestraCodecSettings(inlineComponents = inline, decoderCompileThreshold = -1)).decode(group, ReportingContext())
+        val compiled = factory.create(FixOrchestraCodecSettings(inlineComponents = inline, decoderCompileThreshold = 0)).decode(group, ReportingContext())
+
+        assertEquals(interpreted, compiled)
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = ["missing required field", "out-of-range code", "malformed number", "malformed time"])
+    fun `compiled decoder rejects invalid messages as interpreter`(input: String) {
+        val group = rawGroup(withHeader(INVALID_DECODE_INPUTS.getValue(input), "FIXT.1.1"))
+
+        // without the Orchestra validation the failures come from the decoders themselves
+        Assertions.assertAll(listOf(ValidationMode.ALWAYS, ValidationMode.NEVER).map { mode ->
+            Executable {
+                val policies = mapOf("ExecutionReport" to ValidationPolicy(mode))
+                val interpreter = factory.create(FixOrchestraCodecSettings(decoderCompileThreshold = -1, validationPolicies = policies))
+                val compiled = factory.create(FixOrchestraCodecSettings(decoderCompileThreshold = 0, validationPolicies = policies))
+
+                val expected = outcome { interpreter.decode(group, ReportingContext()) }
+                Assertions.assertTrue(expected is Failure, "$input is decoded by interpreter with validation $mode")
+                assertEquals(expected, outcome { compiled.decode(group, ReportingContext()) }, "$input with validation $mode")
+            }
+        })
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = [true, false])
+    fun `compiled encoder produces the same message as interpreter`(inline: Boolean) {
+        val interpreter = factory.create(FixOrchestraCodecSettings(inlineComponents = inline, encoderCompileThreshold = -1))
+        val compiled = factory.create(FixOrchestraCodecSettings(inlineComponents = inline, encoderCompileThreshold = 0))
+
+        val decoded = interpreter.decode(rawGroup(EXECUTION_REPORT_ORDERED), ReportingContext())
+
+        assertEquals(interpreter.encode(decoded, ReportingContext()), compiled.encode(decoded, ReportingContext()))
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = ["missing required field", "out-of-range code", "malformed number", "malformed time", "unexpected field"])
+    fun `compiled encoder rejects invalid messages as interpreter`(input: String) {
+        val interpreter = factory.create(FixOrchestraCodecSettings(encoderCompileThreshold = -1))
+        val compiled = factory.create(FixOrchestraCodecSettings(encoderCompileThreshold = 0))
+        val decoded = interpreter.decode(rawGroup(EXECUTION_REPORT_ORDERED), ReportingContext()).messagesList.single().message
+        val message = decoded.toBuilder().apply(INVALID_ENCODE_INPUTS.getValue(input)).build()
+        val group = MessageGroup.newBuilder().addMessages(AnyMessage.newBuilder().setMessage(message)).build()
+
+        val expected = outcome { interpreter.encode(group, ReportingContext()) }
+        Assertions.assertTrue(expected is Failure, "$input is encoded by interpreter")
+        assertEquals(expected, outcome { compiled.encode(group, ReportingContext()) })
+
+        // the validation of the encoded message may fail first, so the errors of the encoders are compared as well
+        val structure = dictionary().use { it.loadRepository() }.loadMessageStructures(false).getValue("ExecutionReport")
+        val (interpreted, interpreterErrors) = structure.encode(message, "FIXT.1.1")
+        val (encoded, compiledErrors) = CompiledEncoder(structure).encode(message, "FIXT.1.1")
+
+        Assertions.assertTrue(interpreterErrors.isNotEmpty(), "$input is encoded by interpreter without errors")
+        assertEquals(interpreterErrors, compiledErrors)
+        assertEquals(interpreted.toString(), encoded.toString())
+    }
+
+    @Test
+    fun `compiled decoder reuses enum and interned values`() {
+        val group = rawGroup(EXECUTION_REPORT)
+        val interpreter = factory.create(FixOrchestraCodecSettings(decoderCompileThreshold = -1))
+        val compiled = factory.create(FixOrchestraCodecSettings(decoderCompileThreshold = 0, internedFields = setOf("SenderCompID")))
+
+        val first = compiled.decode(group, ReportingContext()).messagesList.single().message
+        val second = compiled.decode(group, ReportingContext()).messagesList.single().message
+
+        assertEquals(interpreter.decode(group, ReportingContext()).messagesList.single().message, first)
+        Assertions.assertSame(first.fieldsMap["OrdStatus"], second.fieldsMap["OrdStatus"])
+        Assertions.assertSame(
+            first.fieldsMap.getValue("header").messageValue.fieldsMap["SenderCompID"],
+            second.fieldsMap.getValue("header").messageValue.fieldsMap["SenderCompID"]
+        )
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = [true, false])
+    fun `streamed group produces the same message as regular path`(inline: Boolean) {
+        val group = rawGroup(EXECUTION_REPORT)
+        val regular = factory.create(FixOrchestraCodecSettings(inlineComponents = inline))
+        val streamed = factory.create(FixOrchestraCodecSettings(
+            inlineComponents = inline,
+            streamedGroups = mapOf("ExecutionReport" to if (inline) "NoPartyIDs" else "Parties.NoPartyIDs")
+        ))
+
+        assertEquals(regular.decode(group, ReportingContext()), streamed.decode(group, ReportingContext()))
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = [0, 2])
+    fun `streamed group is not decoded with a wrong nested counter`(subIds: Int) {
+        val structure = dictionary().use { it.loadRepository() }.loadMessageStructures(true).getValue("ExecutionReport")
+        val decoder = StreamingDecoder(structure, "NoPartyIDs")
+        val raw = { count: Int ->
+            ByteString.copyFromUtf8(withHeader(EXECUTION_REPORT.replace("452=76\u0001", "452=76\u0001802=$count\u0001523=SUB\u0001803=1\u0001"), "FIXT.1.1"))
+        }
+
+        assertNotNull(decoder.decode(raw(1), null), "nested counter matching its entries")
+        Assertions.assertNull(decoder.decode(raw(subIds), null), "nested counter of $subIds entries")
+    }
+
+    @Test
+    fun `decodes projected fields only`() {
+        val codec = factory.create(FixOrchestraCodecSettings(projections = mapOf("ExecutionReport" to listOf(Projection(setOf("ClOrdID", "OrdStatus"))))))
+
+        val result = codec.decode(rawGroup(EXECUTION_REPORT), ReportingContext())
+        val parsedMessage = result.messagesList.single().message
+        Assertions.assertEquals(setOf("ClOrdID", "OrdStatus", "header", "trailer"), parsedMessage.fieldsMap.keys)
+        assertFields(parsedMessage, mapOf("ClOrdID" to "3016560".toValue()))
+    }
+
+    @Test
+    fun `decodes header only`() {
+        val codec = factory.create(FixOrchestraCodecSettings(headerOnly = setOf("ExecutionReport")))
+
+        val result = codec.decode(rawGroup(EXECUTION_REPORT), ReportingContext())
+        val parsedMessage = result.messagesList.single().message
+        Assertions.assertEquals("ExecutionReport", parsedMessage.messageType)
+        Assertions.assertEquals(setOf("header"), parsedMessage.fieldsMap.keys)
+        Assertions.assertEquals("true", parsedMessage.metadata.propertiesMap[FixOrchestraCodec.HEADER_ONLY_PROPERTY])
+        assertFields(parsedMessage.getMessage("header")!!, mapOf("SenderCompID" to "FGW".toValue(), "MsgSeqNum" to 92.toValue()))
+    }
+
+    @Test
+    fun `validates sampled messages only`() {
+        val codec = factory.create(FixOrchestraCodecSettings(validationPolicies = mapOf("ExecutionReport" to ValidationPolicy(ValidationMode.SAMPLE, sampleRate = 2))))
+        val group = rawGroup(EXECUTION_REPORT)
+        val validated = validations("validated")
+        val skipped = validations("skipped")
+
+        repeat(4) {
+            Assertions.assertEquals("ExecutionReport", codec.decode(group, ReportingContext()).messagesList.single().message.messageType)
+        }
+
+        Assertions.assertEquals(validated + 2, validations("validated"))
+        Assertions.assertEquals(skipped + 2, validations("skipped"))
+    }
+
+    @Test
+    fun `records phase durations, failures and validation errors`() {
+        val codec = factory.create(FixOrchestraCodecSettings())
+        val decodePhases = listOf("parse", "orchestra_validation", "structure_decode", "output_build").associateWith { phases("decode", it) }
+        val encodePhases = listOf("structure_encode", "orchestra_validation", "qfj_validation", "output_build").associateWith { phases("encode", it) }
+        val failures = failures()
+        val validationErrors = validationErrors(41)
+
+        codec.encode(codec.decode(rawGroup(EXECUTION_REPORT_ORDERED), ReportingContext()), ReportingContext())
+        assertThrows<ValidateException> { codec.decode(rawGroup(ORDER_CANCEL_REQUEST), ReportingContext()) }
+
+        Assertions.assertEquals(decodePhases.mapValues { it.value + 1 }, decodePhases.mapValues { phases("decode", it.key) })
+        Assertions.assertEquals(encodePhases.mapValues { it.value + 1 }, encodePhases.mapValues { phases("encode", it.key) })
+        Assertions.assertEquals(failures + 1, failures())
+        Assertions.assertEquals(validationErrors + 1, validationErrors(41))
+    }
+
+    @Test
+    fun `degrades validation when decoding exceeds latency SLO`() {
+        val codec = factory.create(FixOrchestraCodecSettings(adaptiveValidation = AdaptiveValidationSettings(latencySloMicros = 1, smoothing = 1.0, holdMillis = 0)))
+        val group = rawGroup(EXECUTION_REPORT)
+
+        val warnings = List(3) { ReportingContext().also { codec.decode(group, it) }.warnings }
+
+        Assertions.assertTrue(warnings[0].single().startsWith("Validation degraded from FULL to NO_RULES")) { warnings[0].toString() }
+        Assertions.assertTrue(warnings[1].single().startsWith("Validation degraded from NO_RULES to NO_CODESETS")) { warnings[1].toString() }
+        Assertions.assertEquals(emptyList<String>(), warnings[2])
+    }
+
     @Test
     fun `decodes session message`() {
         val codec = factory.create(FixOrchestraCodecSettings())
@@ -225,6 +420,173 @@ class TestFixOrchestraCodec {
         Assertions.assertEquals("Heartbeat", parsedMessage.messageType)
     }
 
+    @Test
+    fun `session fast lane produces the same message as regular path`() {
+        val group = rawGroup(HEARTBEAT)
+        val regular = factory.create(FixOrchestraCodecSettings())
+        val fast = factory.create(FixOrchestraCodecSettings(sessionMessages = setOf("Heartbeat")))
+
+        assertEquals(regular.decode(group, ReportingContext()), fast.decode(group, ReportingContext()))
+    }
+
+    /**
+     * Every dictionary is the test repository of its own version with the message types renamed after the dictionary,
+     * so the decoded message type tells which dictionary decoded the message
+     */
+    @Test
+    fun `routes messages to dictionaries`() {
+        val versions = mapOf("sp2" to "FIX.5.0SP2", "sp1" to "FIX.5.0SP1", "fix44" to "FIX.4.4")
+        val routingFactory = FixOrchestraCodecFactory().apply {
+            init(object : IPipelineCodecContext {
+                override fun get(alias: DictionaryAlias): InputStream = dictionary()
+                    .use { it.readBytes().toString(Charsets.UTF_8) }
+                    .replaceFirst(Regex("""(<fixr:repository[^>]*\sversion=")[^"]*"""), "$1${versions.getValue(alias)}")
+                    .replace("name=\"ExecutionReport\"", "name=\"ExecutionReport_$alias\"")
+                    .byteInputStream()
+
+                override fun get(type: DictionaryType): InputStream = dictionary()
+
+                override fun getDictionaryAliases(): Set<String> = versions.keys
+            })
+        }
+
+        try {
+            val routing = routingFactory.create(FixOrchestraCodecSettings(dictionaries = versions.keys.toList()))
+            val group = MessageGroup.newBuilder()
+                // the property wins over the header
+                .addMessages(raw(EXECUTION_REPORT) { putProperties(FixOrchestraCodec.DICTIONARY_PROPERTY, "sp1") })
+                .addMessages(raw(withHeader(EXECUTION_REPORT, "FIX.4.4")))
+                // ApplVerID selects one of the dictionaries sharing BeginString
+                .addMessages(raw(withHeader(EXECUTION_REPORT, "FIXT.1.1", applVerId = "8")))
+                .addMessages(raw(withHeader(EXECUTION_REPORT, "FIXT.1.1", applVerId = "9")))
+                // the first of them takes messages without ApplVerID
+                .addMessages(raw(EXECUTION_REPORT))
+                .build()
+
+            assertEquals(
+                listOf("sp1", "fix44", "sp1", "sp2", "sp2").map { "ExecutionReport_$it" },
+                routing.decode(group, ReportingContext()).messagesList.map { it.message.messageType },
+            )
+        } finally {
+            routingFactory.close()
+        }
+    }
+
+    @Test
+    fun `batch validation produces the same messages as single validation`() {
+        val parsed = AnyMessage.newBuilder().setMessage(Message.newBuilder()).build()
+        val group = MessageGroup.newBuilder().addMessages(raw(EXECUTION_REPORT)).addMessages(parsed).addMessages(raw(EXECUTION_REPORT)).build()
+        val single = factory.create(FixOrchestraCodecSettings())
+        val batched = factory.create(FixOrchestraCodecSettings(batchValidation = true))
+
+        assertEquals(single.decode(group, ReportingContext()), batched.decode(group, ReportingContext()))
+
+        val thrown = assertThrows<ValidateException> {
+            batched.decode(rawGroup(EXECUTION_REPORT, ORDER_CANCEL_REQUEST, EXECUTION_REPORT), ReportingContext())
+        }
+        assertEquals("msgType [OrderCancelRequest], tags [41], scenario [base]", thrown.message)
+        assertEquals(listOf("Missing required field 41, expected=REQUIRED, actual=(not present)"), thrown.details)
+
+        // the batched message precedes the one which fails to be parsed
+        val first = assertThrows<ValidateException> {
+            batched.decode(rawGroup(ORDER_CANCEL_REQUEST, "8=FIXT.1.1\u00019=5\u000135=ZZ\u000110=000\u0001"), ReportingContext())
+        }
+        assertEquals("msgType [OrderCancelRequest], tags [41], scenario [base]", first.message)
+    }
+
+    @Test
+    fun `infers scenario by discriminating fields`() {
+        fun structure(vararg fields: FixField) = FixMessage("NewOrderSingle", "D", mapOf(), fields.associateBy(FixField::name), mapOf())
+        val inference = ScenarioInference(mapOf("NewOrderSingle" to mapOf(
+            "base" to structure(
+                FixField("OrdType", 40, "char", values = mapOf("Market" to "1"), isRequired = true, isField = true),
+                FixField("Price", 44, "Price", isForbidden = true, isField = true),
+            ),
+            "limit" to structure(
+                FixField("OrdType", 40, "char", values = mapOf("Limit" to "2"), isRequired = true, isField = true),
+                FixField("Price", 44, "Price", isRequired = true, isField = true),
+            ),
+        )), "base")
+
+        assertEquals(InferredScenario("base", 1, 0), inference.infer("NewOrderSingle", QuickfixMessage().apply { setString(40, "1") }))
+        assertEquals(InferredScenario("limit", 1, 0), inference.infer("NewOrderSingle", QuickfixMessage().apply { setString(40, "2"); setString(44, "10") }))
+        assertEquals(InferredScenario("base", 2, 1), inference.infer("NewOrderSingle", QuickfixMessage().apply { setString(40, "1"); setString(44, "10") }))
+    }
+
+    @Test
+    fun `message structures share identical components`() {
+        val repository = checkNotNull(TestFixOrchestraCodec::class.java.classLoader.getResourceAsStream("dict/mit_2016.xml")).use { it.loadRepository() }
+        val structures = repository.loadMessageStructures(false)
+        val order = structures.getValue("NewOrderSingle")
+        val report = structures.getValue("ExecutionReport")
+
+        Assertions.assertSame(order.header, report.header)
+        Assertions.assertSame(order.body.getValue("Side").values, report.body.getValue("Side").values)
+        Assertions.assertTrue(structures.estimateRetainedSize() > 0)
+    }
+
+    private fun validations(outcome: String): Double = CollectorRegistry.defaultRegistry.getSampleValue(
+        "th2_codec_fix_orchestra_validations_total",
+        arrayOf("operation", "message_type", "scenario", "outcome"),
+        arrayOf("decode", "ExecutionReport", "base", outcome)
+    ) ?: 0.0
+
+    private fun raw(body: String, properties: RawMessageMetadata.Builder.() -> Unit = {}): AnyMessage = AnyMessage.newBuilder()
+        .setRawMessage(
+            RawMessage.newBuilder()
+                .setBody(ByteString.copyFrom(body.toByteArray(Charsets.UTF_8)))
+                .apply { metadataBuilder.properties() }
+        )
+        .build()
+
+    /**
+     * Returns the [message] with the [beginString] and the [applVerId] if it is set, the length and the checksum are recalculated
+     */
+    private fun withHeader(message: String, beginString: String, applVerId: String? = null): String {
+        val fields = message.split('\u0001').filter(String::isNotEmpty).drop(2).dropLast(1).toMutableList()
+        applVerId?.let { fields.add(1, "1128=$it") }
+        val body = fields.joinToString("") { "$it\u0001" }
+        val prefix = "8=$beginString\u00019=${body.toByteArray(Charsets.UTF_8).size}\u0001"
+        val checksum = (prefix + body).toByteArray(Charsets.UTF_8).sumOf { it.toInt() and 0xFF } % 256
+        return "$prefix${body}10=${"%03d".format(checksum)}\u0001"
+    }
+
+    /**
+     * Exception thrown by the codec with the details of a validation failure
+     */
+    private data class Failure(val type: Class<out Throwable>, val message: String?, val details: List<String>?)
+
+    /**
+     * Returns the result of the [action] or the [Failure] it throws
+     */
+    private fun outcome(action: () -> Any): Any = runCatching(action).getOrElse { Failure(it.javaClass, it.message, (it as? ValidateException)?.details) }
+
+    private fun dictionary(): InputStream = checkNotNull(TestFixOrchestraCodec::class.java.classLoader.getResourceAsStream("dict/mit_2016.xml")) {
+        "cannot find dictionary"
+    }
+
+    private fun rawGroup(vararg bodies: String): MessageGroup = MessageGroup.newBuilder()
+        .apply { bodies.forEach { addMessages(raw(it)) } }
+        .build()
+
+    private fun phases(operation: String, phase: String): Double = CollectorRegistry.defaultRegistry.getSampleValue(
+        "th2_codec_fix_orchestra_phase_duration_seconds_count",
+        arrayOf("operation", "phase", "message_type", "scenario"),
+        arrayOf(operation, phase, "ExecutionReport", "base")
+    ) ?: 0.0
+
+    private fun failures(): Double = CollectorRegistry.defaultRegistry.getSampleValue(
+        "th2_codec_fix_orchestra_failures_total",
+        arrayOf("operation", "message_type", "scenario"),
+        arrayOf("decode", "OrderCancelRequest", "base")
+    ) ?: 0.0
+
+    private fun validationErrors(tag: Int): Double = CollectorRegistry.defaultRegistry.getSampleValue(
+        "th2_codec_fix_orchestra_validation_errors_total",
+        arrayOf("operation", "message_type", "scenario", "tag"),
+        arrayOf("decode", "OrderCancelRequest", "base", tag.toString())
+    ) ?: 0.0
+
     private fun assertFields(message: Message, fields: Map<String, Value>) {
         Assertions.assertAll(fields.map { (name, value) ->
             Executable {
@@ -232,4 +594,28 @@ class TestFixOrchestraCodec {
             }
         })
     }
-}
\ No newline at end of file
+
+    companion object {
+        private const val EXECUTION_REPORT = "8=FIXT.1.1\u00019=313\u000135=8\u000134=92\u000149=FGW\u000152=20220214-12:23:36.900\u000156=DEMO-CONN2\u000111=3016560\u000114=40\u000117=156\u000122=8\u000137=54\u000138=100\u000139=C\u000140=2\u000144=34\u000148=INSTR2\u000154=2\u000158=The remaining part of simulated order has been expired\u000159=3\u000160=20220214-12:23:36.798\u0001150=C\u0001151=0\u0001528=A\u0001581=1\u0001453=3\u0001448=DEMO-CONN2\u0001447=D\u0001452=76\u0001448=0\u0001447=N\u0001452=3\u0001448=3\u0001447=N\u0001452=12\u000110=035\u0001"
+        // the fields are in the order the encoder writes them
+        private const val EXECUTION_REPORT_ORDERED = "8=FIXT.1.1\u00019=313\u000135=8\u000149=FGW\u000156=DEMO-CONN2\u000134=92\u000152=20220214-12:23:36.900\u000137=54\u000111=3016560\u0001453=3\u0001448=DEMO-CONN2\u0001447=D\u0001452=76\u0001448=0\u0001447=N\u0001452=3\u0001448=3\u0001447=N\u0001452=12\u000117=156\u0001150=C\u000139=C\u0001581=1\u000148=INSTR2\u000122=8\u000154=2\u000138=100\u000140=2\u000144=34\u000159=3\u0001528=A\u0001151=0\u000114=40\u000160=20220214-12:23:36.798\u000158=The remaining part of simulated order has been expired\u000110=035\u0001"
+        // misses OrigClOrdID required by the rule OrigClOrdIDnotrequiredwhenOrderIDexists [!exists OrderID]
+        private const val ORDER_CANCEL_REQUEST = "8=FIX.4.4\u00019=136\u000135=F\u000134=4\u000149=FIXTESTA\u000152=20220419-13:10:13.518\u000156=MONTRANTS\u000111=1650373817746\u000138=500\u000154=1\u000155=GEB\u000160=20220419-13:10:13.518\u00011300=GelOEquiM\u000110=054\u0001"
+
+        private val INVALID_ENCODE_INPUTS: Map<String, Message.Builder.() -> Unit> = mapOf(
+            "missing required field" to { removeFields("OrderID") },
+            "out-of-range code" to { putFields("OrdStatus", "~".toValue()) },
+            "malformed number" to { putFields("OrderQty", "1O0".toValue()) },
+            "malformed time" to { putFields("TransactTime", "2022-02-14T25:23:36.798".toValue()) },
+            "unexpected field" to { putFields("NoSuchField", "1".toValue()) },
+        )
+
+        private val INVALID_DECODE_INPUTS = mapOf(
+            "missing required field" to EXECUTION_REPORT.replace("\u000137=54\u0001", "\u0001"),
+            "out-of-range code" to EXECUTION_REPORT.replace("\u000139=C\u0001", "\u000139=~\u0001"),
+            "malformed number" to EXECUTION_REPORT.replace("\u000138=100\u0001", "\u000138=1O0\u0001"),
+            "malformed time" to EXECUTION_REPORT.replace("\u000160=20220214-12:23:36.798\u0001", "\u000160=20220214-25:23:36.798\u0001"),
+        )
+        private const val HEARTBEAT = "8=FIXT.1.1\u00019=59\u000135=0\u000134=1525\u000149=DEMO-CONN1\u000152=20220214-12:23:14.181\u000156=FGW\u000110=077\u0001"
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.generator
+
+import com.exactpro.th2.codec.api.DictionaryAlias
+import com.exactpro.th2.codec.api.IPipelineCodecContext
+import com.exactpro.th2.codec.api.impl.ReportingContext
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodecFactory
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodecSettings
+import com.exactpro.th2.codec.fix.orchestra.QfjDictionaryLoader
+import com.exactpro.th2.codec.fix.orchestra.util.loadRepository
+import com.exactpro.th2.codec.fix.orchestra.validator.RepositoryCache
+import com.exactpro.th2.codec.fix.orchestra.validator.ValidatorQfj
+import com.exactpro.th2.common.grpc.AnyMessage
+import com.exactpro.th2.common.grpc.MessageGroup
+import com.exactpro.th2.common.schema.dictionary.DictionaryType
+import io.fixprotocol.orchestra.model.SymbolResolver
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.function.Executable
+import org.junit.jupiter.api.io.TempDir
+import quickfix.DataDictionary
+import java.io.File
+import java.io.InputStream
+import quickfix.Message as QuickfixMessage
+
+class TestFixMessageGenerator {
+    @Test
+    fun `generates valid messages of every type and scenario`(@TempDir directory: File) {
+        val repository = dictionary().use { it.loadRepository() }
+        val dictionary = dictionary().use { QfjDictionaryLoader.load(it, directory) }.inputStream().use(::DataDictionary)
+        val cache = RepositoryCache(repository, 500, false)
+        val validator = ValidatorQfj(cache, SymbolResolver())
+        val generator = FixMessageGenerator(repository)
+
+        Assertions.assertAll(generator.messageNames.flatMap { name ->
+            generator.scenarios(name).map { scenario ->
+                Executable {
+                    val generated = generator.generate(name, scenario)
+                    val message = QuickfixMessage().apply { fromString(generated.raw, dictionary, true) }
+
+                    Assertions.assertTrue(generated.isValid)
+                    validator.validate(message, checkNotNull(cache.getMessage(name, scenario)) { "No scenario $scenario for message: $name" })
+                    dictionary.validate(message, true)
+                }
+            }
+        })
+    }
+
+    @Test
+    fun `generates the same messages for the same seed`() {
+        val repository = dictionary().use { it.loadRepository() }
+        val settings = GeneratorSettings(seed = 42, invalidRatio = 0.5)
+
+        Assertions.assertEquals(
+            FixMessageGenerator(repository, settings).generate(100).map { it.raw to it.isValid },
+            FixMessageGenerator(repository, settings).generate(100).map { it.raw to it.isValid },
+        )
+    }
+
+    /**
+     * Messages without required or enumerated fields in the body cannot be made invalid, so they are generated valid
+     */
+    @Test
+    fun `generates invalid messages rejected by the codec`() {
+        val repository = dictionary().use { it.loadRepository() }
+        val generator = FixMessageGenerator(repository, GeneratorSettings(seed = 42, invalidRatio = 1.0))
+        val factory = FixOrchestraCodecFactory().apply {
+            init(object : IPipelineCodecContext {
+                override fun get(alias: DictionaryAlias): InputStream = get(DictionaryType.MAIN)
+                override fun get(type: DictionaryType): InputStream = dictionary()
+                override fun getDictionaryAliases(): Set<String> = emptySet()
+            })
+        }
+
+        factory.use {
+            val codec = it.create(FixOrchestraCodecSettings())
+            val invalid = generator.messageNames.flatMap { name -> generator.scenarios(name).map { scenario -> generator.generate(name, scenario) } }
+                .filterNot(GeneratedMessage::isValid)
+
+            Assertions.assertTrue(invalid.isNotEmpty(), "no invalid messages are generated")
+            Assertions.assertAll(invalid.map { generated ->
+                Executable {
+                    val group = MessageGroup.newBuilder().addMessages(AnyMessage.newBuilder().setRawMessage(generated.toRawMessage())).build()
+                    Assertions.assertThrows(Exception::class.java, { codec.decode(group, ReportingContext()) }, "${generated.name} with scenario ${generated.scenario}: ${generated.raw}")
+                }
+            })
+        }
+    }
+
+    private fun dictionary(): InputStream = checkNotNull(TestFixMessageGenerator::class.java.classLoader.getResourceAsStream("dict/mit_2016.xml")) {
+        "cannot find dictionary"
+    }
+}
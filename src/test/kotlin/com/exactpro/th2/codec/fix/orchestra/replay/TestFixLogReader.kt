@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.replay
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.text.Charsets.US_ASCII
+
+class TestFixLogReader {
+    @TempDir
+    lateinit var directory: Path
+
+    @Test
+    fun `frames messages by body length and skips text between them`() {
+        val heartbeat = frame("35=0\u000134=1\u0001")
+        // the body contains 8= which must not start a new message
+        val order = frame("35=D\u000134=2\u000158=see 8=FIX.4.4 \u0001")
+        val reader = FixLogReader(write("2022-02-14 12:00:00 IN $heartbeat\n2022-02-14 12:00:01 OUT ${order}trailing text"))
+
+        Assertions.assertEquals(listOf("0" to heartbeat, "D" to order), reader.read())
+        Assertions.assertEquals(0L, reader.malformedFrames)
+    }
+
+    @Test
+    fun `skips malformed frames`() {
+        val heartbeat = frame("35=0\u000134=1\u0001")
+        val reader = FixLogReader(write(listOf(
+            "8=FIX.4.4\u00019=abc\u000135=0\u000110=000\u0001", // no body length
+            "8=FIX.4.4\u00019=3\u000135=0\u000134=1\u000110=000\u0001", // body length does not point to the checksum
+            heartbeat,
+        ).joinToString("\n")))
+
+        Assertions.assertEquals(listOf("0" to heartbeat), reader.read())
+        Assertions.assertEquals(2L, reader.malformedFrames)
+    }
+
+    @Test
+    fun `replaces custom delimiter`() {
+        val heartbeat = frame("35=0\u000134=1\u0001")
+        val reader = FixLogReader(write(heartbeat.replace('\u0001', '|')), '|'.code.toByte())
+
+        Assertions.assertEquals(listOf("0" to heartbeat), reader.read())
+    }
+
+    @Test
+    fun `reads messages crossing mapped window boundaries`() {
+        val messages = List(20) { frame("35=${if (it % 2 == 0) "0" else "D"}\u000134=${it + 1}\u000158=${"x".repeat(it)}\u0001") }
+        val content = messages.mapIndexed { index, message -> "line $index: $message" }.joinToString("\n")
+        val path = write(content)
+        val expected = FixLogReader(path).read()
+        val longest = messages.maxOf(String::length)
+
+        Assertions.assertEquals(messages.size, expected.size)
+
+        for (windowSize in listOf(longest + 1, longest + 7, 2 * longest - 1, content.length - 1)) {
+            val reader = FixLogReader(path, windowSize = windowSize.toLong())
+            Assertions.assertEquals(expected, reader.read()) { "window size $windowSize" }
+            Assertions.assertEquals(0L, reader.malformedFrames) { "window size $windowSize" }
+        }
+    }
+
+    @Test
+    fun `reads messages with the smallest windows`() {
+        val heartbeat = frame("35=0\u000134=1\u0001")
+        // the digit before 8= is in the previous window for the smallest window size
+        val content = "received from the exchange, sequence 1$heartbeat\n$heartbeat\ntext $heartbeat"
+        val path = write(content)
+
+        for (windowSize in MIN_WINDOW_SIZE..content.length + 1L) {
+            val reader = FixLogReader(path, windowSize = windowSize)
+            Assertions.assertEquals(listOf("0" to heartbeat, "0" to heartbeat), reader.read()) { "window size $windowSize" }
+            Assertions.assertEquals(0L, reader.malformedFrames) { "window size $windowSize" }
+        }
+    }
+
+    @Test
+    fun `counts messages longer than the window as malformed`() {
+        val order = frame("35=D\u000134=2\u000158=${"x".repeat(100)}\u0001")
+        val heartbeat = frame("35=0\u000134=1\u0001")
+        val reader = FixLogReader(write("$order\n$heartbeat"), windowSize = MIN_WINDOW_SIZE)
+
+        Assertions.assertEquals(listOf("0" to heartbeat), reader.read())
+        Assertions.assertEquals(1L, reader.malformedFrames)
+        Assertions.assertThrows(IllegalArgumentException::class.java) { FixLogReader(write(heartbeat), windowSize = MIN_WINDOW_SIZE - 1) }
+    }
+
+    private fun frame(body: String): String = "8=FIX.4.4\u00019=${body.length}\u0001${body}10=000\u0001"
+
+    private fun write(content: String): Path = Files.createTempFile(directory, "fix", ".log").apply {
+        Files.write(this, content.toByteArray(US_ASCII))
+    }
+
+    private fun FixLogReader.read(): List<Pair<String, String>> {
+        val frames = mutableListOf<Pair<String, String>>()
+        forEach { frames += it.msgType to it.body.toString(US_ASCII) }
+        return frames
+    }
+}
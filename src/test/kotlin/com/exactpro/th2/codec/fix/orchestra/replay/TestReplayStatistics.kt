@@ -0,0 +1,35 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.replay
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+
+class TestReplayStatistics {
+    @Test
+    fun `counts long errors by their truncated text`() {
+        val statistics = TypeStatistics()
+        val errors = List(20) { "error $it: ${"x".repeat(300)}" }
+
+        errors.forEach(statistics::onFailure)
+        errors.forEach(statistics::onFailure)
+        statistics.onFailure("another error")
+
+        Assertions.assertEquals(41L, statistics.failed)
+        Assertions.assertEquals(errors.map { it.take(200) to 2L } + ("<other>" to 1L), statistics.errors.toList())
+    }
+}
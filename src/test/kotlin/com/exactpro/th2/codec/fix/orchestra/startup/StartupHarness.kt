@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.startup
+
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodec
+import com.exactpro.th2.codec.fix.orchestra.FixOrchestraCodecSettings
+import com.exactpro.th2.codec.fix.orchestra.QfjDictionaryLoader
+import com.exactpro.th2.codec.fix.orchestra.util.loadMessageStructures
+import com.exactpro.th2.codec.fix.orchestra.util.loadRepository
+import quickfix.DataDictionary
+import java.io.File
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryType.HEAP
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.util.concurrent.TimeUnit
+
+private const val REPORT_PREFIX = "startup-report:"
+private const val PEAK_HEAP = "peakHeap"
+private const val TOTAL = "total"
+private const val CHILD_TIMEOUT_MINUTES = 10L
+
+enum class StartupPhase {
+    /** JAXB unmarshalling of the repository */
+    REPOSITORY_LOAD,
+
+    /** generation of the QFJ dictionary from the repository */
+    QFJ_DICTIONARY_GENERATION,
+
+    /** parsing of the generated QFJ dictionary */
+    QFJ_DICTIONARY_LOAD,
+
+    /** `FixOrchestraCodec` construction including the message structures */
+    CODEC_CREATION,
+
+    /** `loadMessageStructures` alone, measured after the startup for reference and not included in the total */
+    MESSAGE_STRUCTURES,
+}
+
+/**
+ * Durations of the startup phases and the [total] wall-clock time of the startup in nanoseconds,
+ * the time of `FixOrchestraCodecFactory.init` and the first `create`
+ */
+class StartupReport(val phases: Map<StartupPhase, Long>, val total: Long, val peakHeap: Long) {
+    override fun toString(): String = buildString {
+        phases.forEach { (phase, nanos) -> appendLine("%-26s %10d ms".format(phase, TimeUnit.NANOSECONDS.toMillis(nanos))) }
+        appendLine("%-26s %10d ms".format("TOTAL", TimeUnit.NANOSECONDS.toMillis(total)))
+        append("%-26s %10d MB".format("PEAK HEAP", peakHeap / 1024 / 1024))
+    }
+
+    internal fun serialize(): String = REPORT_PREFIX + (phases.map { (phase, nanos) -> "$phase=$nanos" } + "$TOTAL=$total" + "$PEAK_HEAP=$peakHeap").joinToString(";")
+
+    companion object {
+        internal fun deserialize(line: String): StartupReport {
+            val values = line.removePrefix(REPORT_PREFIX).split(';').associate { it.substringBefore('=') to it.substringAfter('=').toLong() }
+            val phases = StartupPhase.values().associateWith { phase -> values.getValue(phase.name) }
+            return StartupReport(phases, values.getValue(TOTAL), values.getValue(PEAK_HEAP))
+        }
+    }
+}
+
+/**
+ * Measures codec startup in a new JVM so the measurement is cold and is not affected by the repository caches of the current JVM
+ */
+object StartupHarness {
+    fun measure(dictionary: ByteArray, settings: FixOrchestraCodecSettings = FixOrchestraCodecSettings()): StartupReport {
+        val file = Files.createTempFile("startup-dictionary", ".xml")
+
+        try {
+            Files.write(file, dictionary)
+
+            val java = Paths.get(System.getProperty("java.home"), "bin", "java").toString()
+            val heapOptions = ManagementFactory.getRuntimeMXBean().inputArguments.filter { it.startsWith("-Xm") }
+            val command = listOf(java) + heapOptions + listOf(
+                "-cp", System.getProperty("java.class.path"),
+                StartupHarness::class.java.name,
+                file.toString(),
+                settings.inlineComponents.toString(),
+            )
+
+            val process = ProcessBuilder(command).redirectErrorStream(true).start()
+            val output = process.inputStream.bufferedReader().readLines()
+
+            check(process.waitFor(CHILD_TIMEOUT_MINUTES, TimeUnit.MINUTES)) { "Startup measurement has not finished in $CHILD_TIMEOUT_MINUTES minutes" }
+            check(process.exitValue() == 0) { "Startup measurement failed:\n${output.joinToString("\n")}" }
+
+            return StartupReport.deserialize(output.last { it.startsWith(REPORT_PREFIX) })
+        } finally {
+            Files.deleteIfExists(file)
+        }
+    }
+
+    /**
+     * Performs the same steps as `FixOrchestraCodecFactory.init` and `create` measuring each of them
+     */
+    fun measureInProcess(dictionary: Path, settings: FixOrchestraCodecSettings): StartupReport {
+        val pools = ManagementFactory.getMemoryPoolMXBeans().filter { it.type == HEAP }
+        System.gc()
+        pools.forEach { it.resetPeakUsage() }
+
+        val phases = LinkedHashMap<StartupPhase, Long>()
+        val directory = Files.createTempDirectory("qfj-dictionary").toFile()
+
+        fun <T> StartupPhase.measure(block: () -> T): T {
+            val start = System.nanoTime()
+            return block().also { phases[this] = System.nanoTime() - start }
+        }
+
+        val total: Long
+
+        try {
+            val start = System.nanoTime()
+            val repository = StartupPhase.REPOSITORY_LOAD.measure { Files.newInputStream(dictionary).use { it.loadRepository() } }
+            val dictionaryFile: File = StartupPhase.QFJ_DICTIONARY_GENERATION.measure { Files.newInputStream(dictionary).use { QfjDictionaryLoader.load(it, directory) } }
+            val dataDictionary = StartupPhase.QFJ_DICTIONARY_LOAD.measure { dictionaryFile.inputStream().use(::DataDictionary) }
+            StartupPhase.CODEC_CREATION.measure { FixOrchestraCodec(settings, dataDictionary, repository) }
+            total = System.nanoTime() - start
+            StartupPhase.MESSAGE_STRUCTURES.measure { repository.loadMessageStructures(settings.inlineComponents) }
+        } finally {
+            directory.deleteRecursively()
+        }
+
+        return StartupReport(phases, total, pools.sumOf { it.peakUsage.used })
+    }
+
+    @JvmStatic
+    fun main(args: Array<String>) {
+        val report = measureInProcess(Paths.get(args[0]), FixOrchestraCodecSettings(inlineComponents = args[1].toBoolean()))
+        println(report.serialize())
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.startup
+
+private const val NAMESPACES = """xmlns:fixr="http://fixprotocol.io/2020/orchestra/repository" xmlns:dcterms="http://purl.org/dc/terms/""""
+private const val HEADER_ID = 1_000_001
+private const val TRAILER_ID = 1_000_002
+private const val FIELD_BASE_ID = 50_000
+private const val COMPONENT_BASE_ID = 1_100_000
+private const val GROUP_BASE_ID = 1_200_000
+private const val MESSAGE_BASE_ID = 1_300_000
+private const val CODES_PER_SET = 4
+private val DATATYPES = listOf("String", "int", "Qty", "Price", "UTCTimestamp", "char", "Boolean", "Length", "NumInGroup", "SeqNum")
+private val FIELD_TYPES = listOf("String", "int", "Qty", "Price", "UTCTimestamp", "Boolean")
+
+/**
+ * Orchestra repository of arbitrary size for startup measurements.
+ *
+ * Components form chains of [depth] nested components, the last component of a chain contains a repeating group.
+ * Every message refers to [componentsPerMessage] distinct chains, so a field never occurs twice in a message.
+ * Ids of synthetic entities do not intersect with the ids of the FIX standard except for the fields of the standard header and trailer
+ */
+data class SyntheticRepository(
+    val messages: Int,
+    val components: Int,
+    val depth: Int,
+    val fieldsPerComponent: Int,
+    val componentsPerMessage: Int,
+) {
+    private val chains = components / depth
+
+    init {
+        require(messages > 0 && depth > 0 && fieldsPerComponent > 0) { "messages, depth and fieldsPerComponent must be positive" }
+        require(components % depth == 0) { "components must be a multiple of depth: $components" }
+        require(componentsPerMessage in 1..chains) { "componentsPerMessage must be in range 1..${chains}: $componentsPerMessage" }
+    }
+
+    val fields: Int
+        get() = components * fieldsPerComponent + chains * (fieldsPerComponent + 1)
+
+    fun toXml(): String = buildString {
+        appendLine("""<?xml version="1.0" encoding="UTF-8"?>""")
+        appendLine("""<fixr:repository $NAMESPACES name="Synthetic" version="FIX.5.0SP2">""")
+        appendLine("""<fixr:metadata><dcterms:title>Synthetic repository</dcterms:title></fixr:metadata>""")
+
+        appendLine("<fixr:codeSets>")
+        forEachField { id, index ->
+            if (index % 3 == 0) {
+                appendLine("""<fixr:codeSet name="Field${id}CodeSet" id="$id" type="char">""")
+                repeat(CODES_PER_SET) { code -> appendLine("""<fixr:code name="Code$code" id="$id$code" value="${'A' + code}"/>""") }
+                appendLine("</fixr:codeSet>")
+            }
+        }
+        appendLine("</fixr:codeSets>")
+
+        appendLine("<fixr:datatypes>")
+        DATATYPES.forEach { appendLine("""<fixr:datatype name="$it"/>""") }
+        appendLine("</fixr:datatypes>")
+
+        appendLine("<fixr:fields>")
+        STANDARD_FIELDS.forEach { (id, name, type) -> appendLine("""<fixr:field id="$id" name="$name" type="$type"/>""") }
+        forEachField { id, index ->
+            val type = if (index % 3 == 0) "Field${id}CodeSet" else FIELD_TYPES[index % FIELD_TYPES.size]
+            appendLine("""<fixr:field id="$id" name="Field$id" type="$type"/>""")
+        }
+        repeat(chains) { chain -> appendLine("""<fixr:field id="${counterId(chain)}" name="NoGroup$chain" type="NumInGroup"/>""") }
+        appendLine("</fixr:fields>")
+
+        appendLine("<fixr:components>")
+        appendLine("""<fixr:component name="StandardHeader" id="$HEADER_ID" category="Session">""")
+        STANDARD_FIELDS.filter { it.first != CHECKSUM }.forEach { appendLine("""<fixr:fieldRef id="${it.first}" presence="required"/>""") }
+        appendLine("</fixr:component>")
+        appendLine("""<fixr:component name="StandardTrailer" id="$TRAILER_ID" category="Session">""")
+        appendLine("""<fixr:fieldRef id="$CHECKSUM" presence="required"/>""")
+        appendLine("</fixr:component>")
+        repeat(components) { component ->
+            appendLine("""<fixr:component name="Component$component" id="${COMPONENT_BASE_ID + component}">""")
+            repeat(fieldsPerComponent) { field ->
+                val presence = if (field == 0) """ presence="required"""" else ""
+                appendLine("""<fixr:fieldRef id="${FIELD_BASE_ID + component * fieldsPerComponent + field}"$presence/>""")
+            }
+            if (component % depth == depth - 1) {
+                appendLine("""<fixr:groupRef id="${GROUP_BASE_ID + component / depth}"/>""")
+            } else {
+                appendLine("""<fixr:componentRef id="${COMPONENT_BASE_ID + component + 1}"/>""")
+            }
+            appendLine("</fixr:component>")
+        }
+        appendLine("</fixr:components>")
+
+        appendLine("<fixr:groups>")
+        repeat(chains) { chain ->
+            appendLine("""<fixr:group id="${GROUP_BASE_ID + chain}" name="Group$chain">""")
+            appendLine("""<fixr:numInGroup id="${counterId(chain)}"/>""")
+            repeat(fieldsPerComponent) { field ->
+                appendLine("""<fixr:fieldRef id="${groupFieldId(chain, field)}"/>""")
+            }
+            appendLine("</fixr:group>")
+        }
+        appendLine("</fixr:groups>")
+
+        appendLine("<fixr:messages>")
+        repeat(messages) { message ->
+            appendLine("""<fixr:message name="Message$message" id="${MESSAGE_BASE_ID + message}" msgType="U$message">""")
+            appendLine("<fixr:structure>")
+            appendLine("""<fixr:componentRef id="$HEADER_ID" presence="required"/>""")
+            repeat(componentsPerMessage) { index ->
+                val chain = (message + index * (chains / componentsPerMessage)) % chains
+                val presence = if (index == 0) """ presence="required"""" else ""
+                appendLine("""<fixr:componentRef id="${COMPONENT_BASE_ID + chain * depth}"$presence/>""")
+            }
+            appendLine("""<fixr:componentRef id="$TRAILER_ID" presence="required"/>""")
+            appendLine("</fixr:structure>")
+            appendLine("</fixr:message>")
+        }
+        appendLine("</fixr:messages>")
+
+        appendLine("</fixr:repository>")
+    }
+
+    private inline fun forEachField(action: (id: Int, index: Int) -> Unit) {
+        repeat(components * fieldsPerComponent) { index -> action(FIELD_BASE_ID + index, index) }
+        repeat(chains) { chain -> repeat(fieldsPerComponent) { field -> groupFieldId(chain, field).let { action(it, it - FIELD_BASE_ID) } } }
+    }
+
+    private fun groupFieldId(chain: Int, field: Int): Int = FIELD_BASE_ID + components * fieldsPerComponent + chain * fieldsPerComponent + field
+
+    private fun counterId(chain: Int): Int = FIELD_BASE_ID + fields - chains + chain
+
+    companion object {
+        private const val CHECKSUM = 10
+
+        private val STANDARD_FIELDS = listOf(
+            Triple(8, "BeginString", "String"),
+            Triple(9, "BodyLength", "Length"),
+            Triple(35, "MsgType", "String"),
+            Triple(49, "SenderCompID", "String"),
+            Triple(56, "TargetCompID", "String"),
+            Triple(34, "MsgSeqNum", "SeqNum"),
+            Triple(52, "SendingTime", "UTCTimestamp"),
+            Triple(CHECKSUM, "CheckSum", "String"),
+        )
+
+        /**
+         * Thousands of fields and messages with five levels of component nesting
+         */
+        val LARGE = SyntheticRepository(messages = 2_000, components = 1_500, depth = 5, fieldsPerComponent = 4, componentsPerMessage = 4)
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.startup
+
+import mu.KotlinLogging
+import org.junit.jupiter.api.Assumptions
+import org.junit.jupiter.api.Tag
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.EnumSource
+import java.io.InputStream
+import java.util.concurrent.TimeUnit
+import kotlin.test.assertTrue
+
+/**
+ * Budgets are set with `th2.startup.budget.<size>.millis` and `th2.startup.budget.<size>.heap.mb` system properties,
+ * e.g. `./gradlew perfTest -Pth2.startup.budget.large.millis=20000`. They depend on the machine, so there are no defaults:
+ * the report is always logged and only the configured budgets are checked
+ */
+@Tag("perf")
+class TestStartupBudget {
+    @ParameterizedTest
+    @EnumSource(RepositorySize::class)
+    fun `starts within budget`(size: RepositorySize) {
+        val report = StartupHarness.measure(size.dictionary())
+        val key = "th2.startup.budget.${size.name.lowercase()}"
+        val timeBudget = System.getProperty("$key.millis")?.toLong()
+        val heapBudget = System.getProperty("$key.heap.mb")?.toLong()
+
+        LOGGER.info { "Startup with $size repository:\n$report" }
+
+        Assumptions.assumeTrue(timeBudget != null || heapBudget != null, "No budgets are set for $size repository")
+        timeBudget?.let { assertTrue(TimeUnit.NANOSECONDS.toMillis(report.total) <= it, "Startup time exceeds the budget of $it ms:\n$report") }
+        heapBudget?.let { assertTrue(report.peakHeap / 1024 / 1024 <= it, "Peak heap exceeds the budget of $it MB:\n$report") }
+    }
+
+    enum class RepositorySize {
+        SMALL {
+            override fun dictionary(): ByteArray = checkNotNull(TestStartupBudget::class.java.classLoader.getResourceAsStream("dict/mit_2016.xml")) {
+                "cannot find dictionary"
+            }.use(InputStream::readBytes)
+        },
+        LARGE {
+            override fun dictionary(): ByteArray = SyntheticRepository.LARGE.toXml().toByteArray()
+        };
+
+        abstract fun dictionary(): ByteArray
+    }
+
+    companion object {
+        private val LOGGER = KotlinLogging.logger { }
+    }
+}
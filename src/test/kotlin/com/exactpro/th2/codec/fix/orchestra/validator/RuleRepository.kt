@@ -0,0 +1,164 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.validator
+
+import com.exactpro.th2.codec.fix.orchestra.util.loadRepository
+import io.fixprotocol._2020.orchestra.repository.Repository
+import io.fixprotocol.orchestra.model.SymbolResolver
+import quickfix.Group
+import quickfix.Message as QuickfixMessage
+
+private const val NAMESPACES = """xmlns:fixr="http://fixprotocol.io/2020/orchestra/repository" xmlns:dcterms="http://purl.org/dc/terms/""""
+private const val CHECK_BASE_ID = 10_000
+
+/**
+ * Orchestra repository with a single [MESSAGE] for testing DSL rules. Every rule makes an optional check field required,
+ * so the rules holding for a message are the check fields reported missing by the validator.
+ *
+ * The message has fields of a char and an int code set, a field with a default value and the `Parties` group
+ * whose entries have fields of a char and an int code set and a field with a default value
+ */
+class RuleRepository(private val rules: List<String>) {
+    fun toXml(): String = buildString {
+        appendLine("""<?xml version="1.0" encoding="UTF-8"?>""")
+        appendLine("""<fixr:repository $NAMESPACES name="Rules" version="FIX.5.0SP2">""")
+        appendLine("""<fixr:metadata><dcterms:title>Rule repository</dcterms:title></fixr:metadata>""")
+
+        appendLine("<fixr:codeSets>")
+        CODE_SETS.forEachIndexed { set, (name, type, codes) ->
+            appendLine("""<fixr:codeSet name="$name" id="${set + 1}" type="$type">""")
+            codes.forEachIndexed { code, (codeName, value) -> appendLine("""<fixr:code name="$codeName" id="${(set + 1) * 100 + code}" value="$value"/>""") }
+            appendLine("</fixr:codeSet>")
+        }
+        appendLine("</fixr:codeSets>")
+
+        appendLine("<fixr:datatypes>")
+        DATATYPES.forEach { appendLine("""<fixr:datatype name="$it"/>""") }
+        appendLine("</fixr:datatypes>")
+
+        appendLine("<fixr:fields>")
+        FIELDS.forEach { (id, name, type) -> appendLine("""<fixr:field id="$id" name="$name" type="$type"/>""") }
+        rules.indices.forEach { appendLine("""<fixr:field id="${CHECK_BASE_ID + it}" name="Check$it" type="String"/>""") }
+        appendLine("</fixr:fields>")
+
+        appendLine("<fixr:groups>")
+        appendLine("""<fixr:group id="$PARTIES_ID" name="Parties">""")
+        appendLine("""<fixr:numInGroup id="$NO_PARTY_IDS"/>""")
+        appendLine("""<fixr:fieldRef id="$PARTY_ID"/>""")
+        appendLine("""<fixr:fieldRef id="$PARTY_ID_SOURCE"/>""")
+        appendLine("""<fixr:fieldRef id="$PARTY_ROLE"/>""")
+        appendLine("""<fixr:fieldRef id="$PARTY_ROLE_QUALIFIER" value="$DEFAULT_PARTY_ROLE_QUALIFIER"/>""")
+        appendLine("</fixr:group>")
+        appendLine("</fixr:groups>")
+
+        appendLine("<fixr:messages>")
+        appendLine("""<fixr:message name="$MESSAGE" id="1" msgType="U1">""")
+        appendLine("<fixr:structure>")
+        appendLine("""<fixr:fieldRef id="$ACCOUNT"/>""")
+        appendLine("""<fixr:fieldRef id="$SIDE"/>""")
+        appendLine("""<fixr:fieldRef id="$PRICE_TYPE"/>""")
+        appendLine("""<fixr:fieldRef id="$HANDL_INST" value="$DEFAULT_HANDL_INST"/>""")
+        appendLine("""<fixr:groupRef id="$PARTIES_ID"/>""")
+        rules.forEachIndexed { index, rule ->
+            appendLine("""<fixr:fieldRef id="${CHECK_BASE_ID + index}">""")
+            appendLine("""<fixr:rule name="Rule$index" presence="required"><fixr:when>${rule.escape()}</fixr:when></fixr:rule>""")
+            appendLine("</fixr:fieldRef>")
+        }
+        appendLine("</fixr:structure>")
+        appendLine("</fixr:message>")
+        appendLine("</fixr:messages>")
+
+        appendLine("</fixr:repository>")
+    }
+
+    fun load(): Repository = toXml().byteInputStream().use { it.loadRepository() }
+
+    /**
+     * Returns the rules holding for the [message] validated by a new validator of the repository
+     */
+    fun holding(message: QuickfixMessage): Set<String> {
+        // invalid codes of the other fields are reported as well
+        return validate(message)?.tags.orEmpty().filter { it >= CHECK_BASE_ID }.mapTo(hashSetOf()) { rules[it - CHECK_BASE_ID] }
+    }
+
+    /**
+     * Returns the failure of the [message] validated by a new validator of the repository, `null` if it is valid
+     */
+    fun validate(message: QuickfixMessage): TestExceptionImpl? {
+        val cache = RepositoryCache(load(), 500, false)
+        val type = checkNotNull(cache.getMessage(MESSAGE, "base")) { "No message $MESSAGE" }
+
+        return try {
+            ValidatorQfj(cache, SymbolResolver()).validate(message, type)
+            null
+        } catch (e: TestExceptionImpl) {
+            e
+        }
+    }
+
+    /**
+     * Returns the tag of the check field required by the [rule]
+     */
+    fun checkField(rule: String): Int = CHECK_BASE_ID + rules.indexOf(rule).also { require(it >= 0) { "Unknown rule: $rule" } }
+
+    companion object {
+        const val MESSAGE = "Rules"
+        const val ACCOUNT = 1
+        const val HANDL_INST = 21
+        const val SIDE = 54
+        const val PRICE_TYPE = 423
+        const val NO_PARTY_IDS = 453
+        const val PARTY_ID = 448
+        const val PARTY_ID_SOURCE = 447
+        const val PARTY_ROLE = 452
+        const val PARTY_ROLE_QUALIFIER = 2376
+        const val DEFAULT_HANDL_INST = "1"
+        const val DEFAULT_PARTY_ROLE_QUALIFIER = "23"
+        private const val PARTIES_ID = 1012
+
+        private val DATATYPES = listOf("String", "char", "int", "NumInGroup")
+
+        private val CODE_SETS = listOf(
+            Triple("SideCodeSet", "char", listOf("Buy" to "1", "Sell" to "2", "SellShort" to "5")),
+            Triple("PriceTypeCodeSet", "int", listOf("Percentage" to "1", "PerUnit" to "2", "FixedAmount" to "3", "Discount" to "4")),
+            Triple("PartyIDSourceCodeSet", "char", listOf("BIC" to "B", "Proprietary" to "D")),
+            Triple("PartyRoleCodeSet", "int", listOf("ExecutingFirm" to "1", "ClearingFirm" to "4", "ContraFirm" to "17")),
+        )
+
+        private val FIELDS = listOf(
+            Triple(ACCOUNT, "Account", "String"),
+            Triple(HANDL_INST, "HandlInst", "char"),
+            Triple(SIDE, "Side", "SideCodeSet"),
+            Triple(PRICE_TYPE, "PriceType", "PriceTypeCodeSet"),
+            Triple(NO_PARTY_IDS, "NoPartyIDs", "NumInGroup"),
+            Triple(PARTY_ID, "PartyID", "String"),
+            Triple(PARTY_ID_SOURCE, "PartyIDSource", "PartyIDSourceCodeSet"),
+            Triple(PARTY_ROLE, "PartyRole", "PartyRoleCodeSet"),
+            Triple(PARTY_ROLE_QUALIFIER, "PartyRoleQualifier", "int"),
+        )
+
+        /**
+         * Returns a message of the repository with the [fields] and an entry of the `Parties` group for each of the [parties]
+         */
+        fun message(fields: Map<Int, String> = emptyMap(), parties: List<Map<Int, String>> = emptyList()): QuickfixMessage = QuickfixMessage().apply {
+            fields.forEach { (tag, value) -> setString(tag, value) }
+            parties.forEach { entry -> addGroup(Group(NO_PARTY_IDS, PARTY_ID).apply { entry.forEach { (tag, value) -> setString(tag, value) } }) }
+        }
+
+        private fun String.escape(): String = replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;")
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.validator
+
+import com.exactpro.th2.codec.fix.orchestra.util.loadRepository
+import io.fixprotocol._2020.orchestra.repository.FieldType
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.function.Executable
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ValueSource
+import java.math.BigInteger
+
+class TestFieldTable {
+    @ParameterizedTest
+    @ValueSource(booleans = [false, true])
+    fun `finds every field of a sparse tag set`(offHeap: Boolean) {
+        val fields = SPARSE_TAGS.map { field(it, "Field$it", DATATYPES[it % DATATYPES.size]) } + field(SPARSE_TAGS.first(), "Scenario", "int", "Other")
+        val table = FieldTable.create(fields, offHeap)
+
+        SPARSE_TAGS.forEach { tag ->
+            Assertions.assertEquals("Field$tag", table.getName(tag, BASE))
+            Assertions.assertEquals(DATATYPES[tag % DATATYPES.size], table.getDatatype(tag, BASE))
+        }
+
+        Assertions.assertEquals("Scenario", table.getName(SPARSE_TAGS.first(), "Other"))
+        Assertions.assertNull(table.getName(SPARSE_TAGS.first() + 1, BASE))
+        Assertions.assertNull(table.getDatatype(SPARSE_TAGS.last() + 1, BASE))
+    }
+
+    /**
+     * Hashes of tags with common low bits have common low bits too, so only the top bits of the hash spread them over the table
+     */
+    @Test
+    fun `spreads tags with common low bits over the table`() {
+        val mask = FieldTable.tableMask(SPARSE_TAGS.map { field(it, "Field$it", "int") })
+        val slots = SPARSE_TAGS.mapTo(hashSetOf()) { FieldTable.slot(it, mask) }
+
+        Assertions.assertTrue(slots.all { it in 0..mask }, "slots out of the table")
+        Assertions.assertTrue(slots.size >= SPARSE_TAGS.size / 2, "${slots.size} distinct slots of ${SPARSE_TAGS.size} tags")
+    }
+
+    @Test
+    fun `heap and mapped tables agree on every field of the repository`() {
+        val fields = checkNotNull(TestFieldTable::class.java.classLoader.getResourceAsStream("dict/mit_2016.xml")) { "cannot find dictionary" }
+            .use { it.loadRepository() }
+            .fields.field
+        val heap = FieldTable.create(fields, false)
+        val mapped = FieldTable.create(fields, true)
+
+        Assertions.assertAll(fields.map { field ->
+            val tag = field.id.toInt()
+            Executable {
+                // the second lookup of a mapped name is served from the cache
+                repeat(2) { Assertions.assertEquals(heap.getName(tag, field.scenario), mapped.getName(tag, field.scenario), "name of $tag in ${field.scenario}") }
+                Assertions.assertEquals(heap.getDatatype(tag, field.scenario), mapped.getDatatype(tag, field.scenario), "datatype of $tag in ${field.scenario}")
+            }
+        })
+    }
+
+    private fun field(tag: Int, name: String, type: String, scenario: String = BASE) = FieldType().apply {
+        id = BigInteger.valueOf(tag.toLong())
+        this.name = name
+        this.type = type
+        this.scenario = scenario
+    }
+
+    companion object {
+        private const val BASE = "base"
+        private val DATATYPES = listOf("String", "int", "Qty", "Price", "char")
+
+        // multiples of 2^20 only differ in the bits above the 20th
+        private val SPARSE_TAGS = (1..1_000).map { it shl 20 }
+    }
+}
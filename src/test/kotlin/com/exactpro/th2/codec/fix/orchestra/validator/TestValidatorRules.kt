@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2022 Exactpro (Exactpro Systems Limited)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.exactpro.th2.codec.fix.orchestra.validator
+
+import com.exactpro.th2.codec.fix.orchestra.validator.RuleRepository.Companion.ACCOUNT
+import com.exactpro.th2.codec.fix.orchestra.validator.RuleRepository.Companion.HANDL_INST
+import com.exactpro.th2.codec.fix.orchestra.validator.RuleRepository.Companion.PARTY_ID
+import com.exactpro.th2.codec.fix.orchestra.validator.RuleRepository.Companion.PARTY_ID_SOURCE
+import com.exactpro.th2.codec.fix.orchestra.validator.RuleRepository.Companion.PARTY_ROLE
+import com.exactpro.th2.codec.fix.orchestra.validator.RuleRepository.Companion.PARTY_ROLE_QUALIFIER
+import com.exactpro.th2.codec.fix.orchestra.validator.RuleRepository.Companion.PRICE_TYPE
+import com.exactpro.th2.codec.fix.orchestra.validator.RuleRepository.Companion.SIDE
+import com.exactpro.th2.codec.fix.orchestra.validator.RuleRepository.Companion.message
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.function.Executable
+import quickfix.Message as QuickfixMessage
+
+class TestValidatorRules {
+    /**
+     * Predicates in parentheses are not recognized as equalities, so they are evaluated by the evaluator for every entry
+     */
+    @Test
+    fun `indexed group predicates select the same entries as the evaluator`() {
+        val expected = mapOf(
+            "PartyRole==4" to "FIRM",
+            "PartyID==\"FIRM\"" to "FIRM",
+            "PartyRole==^ClearingFirm" to "FIRM",
+            "PartyIDSource==^Proprietary" to "FIRM",
+            "PartyRole==99" to null,
+            "PartyRole==^ContraFirm" to null,
+            // the default value of an absent key field matches, so it is not resolved by the index
+            "PartyRoleQualifier==$DEFAULT_QUALIFIER" to "FIRM",
+        )
+        val indexed = expected.keys.associateWith { predicate -> PARTY_IDS.map { "Parties[$predicate].PartyID==\"$it\"" } }
+        val evaluated = expected.keys.associateWith { predicate -> PARTY_IDS.map { "Parties[($predicate)].PartyID==\"$it\"" } }
+        val holding = RuleRepository((indexed.values + evaluated.values).flatten()).holding(message(parties = PARTIES))
+
+        expected.forEach { (predicate, partyId) ->
+            val selected = PARTY_IDS.filterIndexed { index, _ -> indexed.getValue(predicate)[index] in holding }
+            val loop = PARTY_IDS.filterIndexed { index, _ -> evaluated.getValue(predicate)[index] in holding }
+
+            Assertions.assertEquals(loop, selected, "entries selected by $predicate")
+            Assertions.assertEquals(listOfNotNull(partyId), selected, "entries selected by $predicate")
+        }
+    }
+
+    @Test
+    fun `presence tests match the evaluator`() {
+        val rules = listOf("exists Account", "!exists Account", "exists HandlInst", "!exists HandlInst")
+        val repository = RuleRepository(rules + rules.map { "($it)" })
+        val present = repository.holding(message(mapOf(ACCOUNT to "ACC", HANDL_INST to "2")))
+        val absent = repository.holding(message())
+
+        rules.forEach { rule ->
+            Assertions.assertEquals("($rule)" in present, rule in present, "$rule with the fields present")
+            Assertions.assertEquals("($rule)" in absent, rule in absent, "$rule with the fields absent")
+        }
+
+        Assertions.assertEquals(setOf("exists Account", "exists HandlInst"), present.intersect(rules))
+        // the absent field with a default value exists
+        Assertions.assertEquals(setOf("!exists Account", "exists HandlInst"), absent.intersect(rules))
+    }
+
+    @Test
+    fun `rules of present fields are not evaluated`() {
+        val rule = "exists Account"
+        val repository = RuleRepository(listOf(rule))
+
+        Assertions.assertEquals(setOf(rule), repository.holding(message(mapOf(ACCOUNT to "ACC"))))
+        Assertions.assertEquals(emptySet<String>(), repository.holding(message(mapOf(ACCOUNT to "ACC", repository.checkField(rule) to "CHECK"))))
+    }
+
+    @Test
+    fun `reports errors of invalid rules of present fields`() {
+        val rules = listOf("exists NoSuchField", "Side ==")
+
+        rules.forEach { rule ->
+            val repository = RuleRepository(listOf(rule))
+
+            listOf(emptyMap(), mapOf(repository.checkField(rule) to "CHECK")).forEach { fields ->
+                val failure = repository.validate(message(fields))
+                Assertions.assertNotNull(failure, "$rule with the fields $fields")
+                Assertions.assertTrue(checkNotNull(failure).hasDetails(), "$rule with the fields $fields")
+            }
+        }
+    }
+
+    /**
+     * Absent fields and malformed values are left to the evaluator, so the outcome includes the errors of the evaluator
+     */
+    @Test
+    fun `code comparisons match the evaluator`() {
+        val rules = listOf("Side==^Buy", "Side!=^Buy", "Side==^Sell", "PriceType==^PerUnit", "PriceType!=^PerUnit", "PriceType==^Discount")
+        val messages = mapOf(
+            // the int code is compared by value, not by its wire form
+            "present" to message(mapOf(SIDE to "1", PRICE_TYPE to "02")),
+            "absent" to message(),
+            "malformed" to message(mapOf(SIDE to "BUY", PRICE_TYPE to "PER_UNIT")),
+        )
+
+        Assertions.assertAll(messages.flatMap { (name, message) ->
+            rules.map { rule -> Executable { Assertions.assertEquals(outcome("($rule)", message), outcome(rule, message), "$rule with the fields $name") } }
+        })
+
+        Assertions.assertEquals(
+            listOf(true, false, false, true, false, false),
+            rules.map { outcome(it, messages.getValue("present")) },
+        )
+    }
+
+    /**
+     * Returns whether the [rule] holds for the [message] or the type of the error thrown by the validator
+     */
+    private fun outcome(rule: String, message: QuickfixMessage): Any = runCatching { RuleRepository(listOf(rule)).holding(message).isNotEmpty() }
+        .getOrElse { it.javaClass }
+
+    companion object {
+        private const val DEFAULT_QUALIFIER = RuleRepository.DEFAULT_PARTY_ROLE_QUALIFIER
+
+        private val PARTIES = listOf(
+            mapOf(PARTY_ID to "EXEC", PARTY_ID_SOURCE to "B", PARTY_ROLE to "1", PARTY_ROLE_QUALIFIER to "5"),
+            // the int code is compared by value, not by its wire form
+            mapOf(PARTY_ID to "FIRM", PARTY_ID_SOURCE to "D", PARTY_ROLE to "04"),
+            mapOf(PARTY_ID to "CLEARING", PARTY_ID_SOURCE to "D", PARTY_ROLE to "4", PARTY_ROLE_QUALIFIER to DEFAULT_QUALIFIER),
+            // entries without the key field never match
+            mapOf(PARTY_ID to "NOROLE"),
+        )
+
+        private val PARTY_IDS = PARTIES.map { it.getValue(PARTY_ID) }
+    }
+}